@@ -0,0 +1,55 @@
+package com.backend.Yummybunch.config;
+
+import com.backend.Yummybunch.security.PrincipalCache;
+import com.backend.Yummybunch.service.CatalogueService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bounded in-process caches for the public catalogue and signed-in users.
+ *
+ * Each cache is declared up front with its own size: a search-result list can
+ * hold every restaurant, so far fewer of those are kept than single menus.
+ * Entries are evicted as soon as an owner edits (see
+ * {@link CatalogueService#onChange}); the TTL only bounds how long a rare
+ * missed eviction could linger. Hit/miss counts are recorded and published by
+ * actuator as the {@code cache.gets} metric.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final Duration CATALOGUE_TTL = Duration.ofMinutes(10);
+    /** Short: bounds how long a change made outside AuthService could go unnoticed. */
+    private static final Duration PRINCIPAL_TTL = Duration.ofSeconds(60);
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        // Static: asking for an undeclared cache name is a bug, not a new unbounded cache.
+        manager.setCacheNames(List.of());
+        register(manager, CatalogueService.LISTS, 200, CATALOGUE_TTL);
+        register(manager, CatalogueService.PAGES, 500, CATALOGUE_TTL);
+        register(manager, CatalogueService.RESTAURANTS, 5_000, CATALOGUE_TTL);
+        register(manager, CatalogueService.MENUS, 2_000, CATALOGUE_TTL);
+        register(manager, CatalogueService.STAMPS, 5_000, CATALOGUE_TTL);
+        register(manager, CatalogueService.CUISINES, 1, CATALOGUE_TTL);
+        register(manager, PrincipalCache.CACHE, 10_000, PRINCIPAL_TTL);
+        return manager;
+    }
+
+    private static void register(CaffeineCacheManager manager, String name, long maxEntries, Duration ttl) {
+        manager.registerCustomCache(name, Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+}
@@ -34,6 +34,11 @@ public class OpenApiConfig {
                                 1. POST /api/auth/login with your email and password.
                                 2. Copy the `token` from the response.
                                 3. Press Authorize (top right) and paste it — no "Bearer " prefix.
+
+                                Live order updates are pushed over STOMP at /ws. Send the token as an
+                                `Authorization: Bearer ...` header on CONNECT, then subscribe to
+                                /topic/customers/{userId}/orders or /topic/restaurants/{restaurantId}/orders.
+                                Each message is the full OrderView of the order that changed.
                                 """))
                 .components(new Components().addSecuritySchemes(BEARER,
                         new SecurityScheme()
@@ -0,0 +1,16 @@
+package com.backend.Yummybunch.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on {@code @Scheduled} background jobs, such as the mail outbox poller.
+ *
+ * Prod runs with lazy initialisation, and a lazy bean is never created, so
+ * its schedule never starts. Beans with scheduled methods are therefore
+ * marked {@code @Lazy(false)}.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
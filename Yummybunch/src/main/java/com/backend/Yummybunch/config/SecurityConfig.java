@@ -1,6 +1,7 @@
 package com.backend.Yummybunch.config;
 
 import com.backend.Yummybunch.security.JwtAuthFilter;
+import com.backend.Yummybunch.security.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,6 +27,7 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     /**
      * Allowed browser origins, comma separated. Hardcoding localhost meant a
@@ -34,17 +36,20 @@ public class SecurityConfig {
     @Value("${app.cors.origins:http://localhost:3000,http://localhost:3001}")
     private String corsOrigins;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     /**
      * Real password hashing. The previous build used NoOpPasswordEncoder, which
-     * stored and compared passwords in plaintext.
+     * stored and compared passwords in plaintext. Each step of strength doubles
+     * the cost; existing hashes move to a new strength as their owners sign in
+     * (see PasswordHasher).
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -64,6 +69,10 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/restaurants/*/menu").permitAll()
                 .requestMatchers("/uploads/**", "/error").permitAll()
 
+                // Live order updates. The upgrade request cannot carry a bearer
+                // header, so the token is checked on the STOMP CONNECT frame.
+                .requestMatchers("/ws/**").permitAll()
+
                 // API documentation. springdoc is on the classpath, so without
                 // these rules anyRequest().authenticated() returned 401 for it.
                 // Turn the docs off entirely with DOCS_ENABLED=false.
@@ -73,6 +82,10 @@ public class SecurityConfig {
                         "/v3/api-docs",
                         "/v3/api-docs/**").permitAll()
 
+                // Health for the host's checks; metrics only for admins.
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                 // ---- Owner-only management. Declared before the generic /api/restaurants/**
                 //      rules above would otherwise let a GET through.
                 .requestMatchers("/api/my-restaurant/**").hasRole("RESTAURANT")
@@ -82,7 +95,9 @@ public class SecurityConfig {
             )
             // Return 401 rather than a redirect to a login page that does not exist here.
             .exceptionHandling(e -> e.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+            // After the token is read, so signed-in callers are limited by account rather than address.
+            .addFilterAfter(rateLimitFilter, JwtAuthFilter.class);
 
         return http.build();
     }
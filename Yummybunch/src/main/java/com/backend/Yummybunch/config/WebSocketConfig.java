@@ -0,0 +1,57 @@
+package com.backend.Yummybunch.config;
+
+import com.backend.Yummybunch.security.StompAuthInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.util.Arrays;
+
+/**
+ * Live order updates over STOMP at /ws, so the orders page and the owner
+ * dashboard are told about a change instead of re-fetching the whole history
+ * every few seconds.
+ *
+ * The handshake itself is public (browsers cannot put a bearer token on a
+ * WebSocket upgrade); the JWT travels in the STOMP CONNECT frame instead and is
+ * checked by {@link StompAuthInterceptor}.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final StompAuthInterceptor stompAuth;
+
+    /** Same origin list as the REST API's CORS policy. */
+    @Value("${app.cors.origins:http://localhost:3000,http://localhost:3001}")
+    private String corsOrigins;
+
+    public WebSocketConfig(StompAuthInterceptor stompAuth) {
+        this.stompAuth = stompAuth;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws")
+                .setAllowedOrigins(Arrays.stream(corsOrigins.split(","))
+                        .map(String::trim)
+                        .filter(o -> !o.isEmpty())
+                        .toArray(String[]::new));
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        // In-memory broker: one instance, no external infrastructure to run.
+        registry.enableSimpleBroker("/topic");
+        registry.setApplicationDestinationPrefixes("/app");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuth);
+    }
+}
@@ -0,0 +1,70 @@
+package com.backend.Yummybunch.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * An Idempotency-Key a customer sent with an order, and the order it produced.
+ * A retry with the same key gets that order back instead of placing another.
+ *
+ * Both the key and the request are stored as hashes, so a row is the same
+ * small size whatever the client sent. Rows are swept once they are older than
+ * the retry window.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "order_idempotency_keys",
+       indexes = @Index(name = "idx_order_idempotency_created", columnList = "createdAt"))
+public class IdempotencyKey implements Persistable<String> {
+
+    /** SHA-256 of the customer id and the key, so two customers can never share one. */
+    @Id
+    @Column(length = 64)
+    private String keyHash;
+
+    /** SHA-256 of the request body, to catch a key reused for a different order. */
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Rows are only ever inserted, so save() must never turn into a merge:
+     * a second insert of the same key has to fail on the primary key, not
+     * quietly overwrite the first.
+     */
+    @Transient
+    private boolean fresh = true;
+
+    public IdempotencyKey(String keyHash, String requestHash, Long orderId, Instant createdAt) {
+        this.keyHash = keyHash;
+        this.requestHash = requestHash;
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return keyHash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void stored() {
+        fresh = false;
+    }
+}
@@ -0,0 +1,60 @@
+package com.backend.Yummybunch.domain;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * How uploaded images and their resized variants are named, e.g.
+ * {@code ab12.png} and {@code ab12-thumb.jpg}. Shared by the API payloads,
+ * which link to variants, and the services that make, serve and delete them.
+ */
+public final class ImageNames {
+
+    public enum Size {
+        THUMB("thumb", 160), MEDIUM("medium", 480), LARGE("large", 1080);
+
+        private final String suffix;
+        private final int width;
+
+        Size(String suffix, int width) {
+            this.suffix = suffix;
+            this.width = width;
+        }
+
+        /** Widest the variant may be, in pixels. */
+        public int width() {
+            return width;
+        }
+    }
+
+    private static final Pattern VARIANT_NAME = Pattern.compile("^([A-Za-z0-9-]+)-(thumb|medium|large)\\.jpg$");
+
+    private ImageNames() {}
+
+    /** Public path of one variant, or null when the image is not one of our uploads. */
+    public static String publicPath(String originalPublicPath, Size size) {
+        if (originalPublicPath == null || !originalPublicPath.startsWith("/uploads/")) return null;
+        return "/uploads/" + variantName(originalPublicPath.substring("/uploads/".length()), size);
+    }
+
+    public static String variantName(String originalName, Size size) {
+        return base(originalName) + "-" + size.suffix + ".jpg";
+    }
+
+    /** The name without its extension, e.g. {@code ab12} for {@code ab12.png}. */
+    public static String base(String originalName) {
+        int dot = originalName.lastIndexOf('.');
+        return dot < 0 ? originalName : originalName.substring(0, dot);
+    }
+
+    /** Whether a name is one of ours for a variant, e.g. {@code ab12-thumb.jpg}. */
+    public static boolean isVariantName(String name) {
+        return VARIANT_NAME.matcher(name).matches();
+    }
+
+    /** The base of the original a variant was made from, or null if the name is not a variant. */
+    public static String originalBase(String variantName) {
+        Matcher m = VARIANT_NAME.matcher(variantName);
+        return m.matches() ? m.group(1) : null;
+    }
+}
@@ -3,6 +3,8 @@ package com.backend.Yummybunch.domain;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.OptimisticLock;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -13,13 +15,23 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "orders", indexes = {
-        @Index(columnList = "customer_id"),
-        @Index(columnList = "restaurant_id")
+        // Composite so a "changed since" poll is one range scan per account;
+        // the leading column still serves plain lookups by customer or restaurant.
+        @Index(name = "idx_orders_customer_updated", columnList = "customer_id, updated_at"),
+        @Index(name = "idx_orders_restaurant_updated", columnList = "restaurant_id, updated_at"),
+        // Keyset pagination walks history newest first by (placed_at, id).
+        @Index(name = "idx_orders_customer_placed", columnList = "customer_id, placed_at, id"),
+        @Index(name = "idx_orders_restaurant_placed", columnList = "restaurant_id, placed_at, id")
 })
 public class Order {
 
+    /**
+     * Ids come from a sequence, 50 at a time, rather than IDENTITY: Hibernate
+     * cannot batch inserts whose ids only exist once the row does.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_id")
+    @SequenceGenerator(name = "order_id", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -30,12 +42,20 @@ public class Order {
     @JoinColumn(name = "restaurant_id", nullable = false)
     private Restaurant restaurant;
 
-    /** Initialised so a freshly built order is never null-item. */
+    /**
+     * Initialised so a freshly built order is never null-item.
+     * Batched: touching one order's items loads them for up to a full page of
+     * orders in the session with a single IN query, instead of one query each.
+     */
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<OrderItem> items = new ArrayList<>();
 
+    /** Appending an entry is part of the status move, which already bumped the version. */
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     @OrderBy("at ASC")
+    @OptimisticLock(excluded = true)
     private List<OrderEvent> events = new ArrayList<>();
 
     @Enumerated(EnumType.STRING)
@@ -62,6 +82,16 @@ public class Order {
     @Column(nullable = false)
     private Instant updatedAt = Instant.now();
 
+    /**
+     * Bumped by every change. Status moves bump it themselves (see
+     * OrderRepository#moveForRestaurant); any other write of the entity is
+     * checked against it, so of two concurrent changes the second fails with a
+     * 409 instead of silently overwriting the first.
+     */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public void addItem(OrderItem item) {
         item.setOrder(this);
         this.items.add(item);
@@ -17,7 +17,8 @@ import java.time.Instant;
 public class OrderEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_event_id")
+    @SequenceGenerator(name = "order_event_id", sequenceName = "order_events_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -49,6 +49,11 @@ public enum OrderStatus {
         return this == PLACED;
     }
 
+    /** Every status an order can still move on from: what a kitchen is working on. */
+    public static List<OrderStatus> active() {
+        return java.util.Arrays.stream(values()).filter(s -> !s.isTerminal()).toList();
+    }
+
     /** The happy path, in order — used to render a progress timeline. */
     public static List<OrderStatus> progression() {
         return List.of(PLACED, RECEIVED, PREPARING, READY, COMPLETED);
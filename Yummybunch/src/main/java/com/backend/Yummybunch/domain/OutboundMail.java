@@ -0,0 +1,53 @@
+package com.backend.Yummybunch.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * An email waiting to go out, written in the same transaction as whatever
+ * caused it. A background dispatcher delivers it after commit and retries
+ * with backoff, so no request ever waits on the mail server.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "mail_outbox", indexes = @Index(name = "idx_mail_outbox_due", columnList = "status, next_attempt_at"))
+public class OutboundMail {
+
+    public enum Status { PENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 4000)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    /** When the dispatcher may next try; pushed forward while a send is in flight. */
+    @Column(nullable = false)
+    private Instant nextAttemptAt = Instant.now();
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    private Instant sentAt;
+}
@@ -3,13 +3,14 @@ package com.backend.Yummybunch.domain;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "restaurants")
+@Table(name = "restaurants", indexes = @Index(name = "idx_restaurants_name", columnList = "name, id"))
 public class Restaurant {
 
     @Id
@@ -46,4 +47,16 @@ public class Restaurant {
 
     @Column(nullable = false)
     private Instant createdAt = Instant.now();
+
+    /** Last change to anything shown publicly — profile, cover or menu. Sent as Last-Modified. */
+    private Instant updatedAt = Instant.now();
+
+    /**
+     * Bumped on every menu write, in the same transaction as the write (see
+     * MenuService). Only ever changed by {@code RestaurantRepository.bumpMenuVersion},
+     * as one atomic UPDATE, so saving a stale copy of this entity cannot roll it back.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long menuVersion;
 }
@@ -0,0 +1,58 @@
+package com.backend.Yummybunch.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * One stored upload, named by its content hash, and how many places use it.
+ * The same photo uploaded twice is stored once; the file is removed only when
+ * the last restaurant or menu item using it lets go.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "upload_blobs")
+public class UploadBlob implements Persistable<String> {
+
+    /** File name in the upload directory: the content hash plus extension. */
+    @Id
+    @Column(length = 80)
+    private String name;
+
+    @Column(nullable = false)
+    private int refCount = 1;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    /**
+     * A new row is always inserted, never merged: when two instances store the
+     * first copy of an image at once, the second insert has to fail on the
+     * primary key rather than overwrite the first one's count.
+     */
+    @Transient
+    private boolean fresh = true;
+
+    @Override
+    public String getId() {
+        return name;
+    }
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void stored() {
+        fresh = false;
+    }
+}
@@ -13,9 +13,16 @@ import java.time.Instant;
 @Getter
 @Setter
 @Entity
-@Table(name = "verification_codes", indexes = @Index(columnList = "email"))
+@Table(name = "verification_codes", indexes = {
+        @Index(columnList = "email"),
+        @Index(name = "idx_verification_codes_consumed", columnList = "consumed"),
+        @Index(name = "idx_verification_codes_expires", columnList = "expires_at")
+})
 public class VerificationCode {
 
+    /** Guesses allowed per code; guards against brute-forcing six digits. */
+    public static final int MAX_ATTEMPTS = 5;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,7 +42,7 @@ public class VerificationCode {
     @Column(nullable = false)
     private boolean consumed = false;
 
-    /** Guards against brute-forcing a 6-digit code. */
+    /** Guesses made so far; see MAX_ATTEMPTS. */
     @Column(nullable = false)
     private int attempts = 0;
 
@@ -44,6 +51,6 @@ public class VerificationCode {
     }
 
     public boolean isUsable() {
-        return !consumed && !isExpired() && attempts < 5;
+        return !consumed && !isExpired() && attempts < MAX_ATTEMPTS;
     }
 }
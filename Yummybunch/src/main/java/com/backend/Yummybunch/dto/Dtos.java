@@ -14,6 +14,11 @@ public final class Dtos {
 
     private Dtos() {}
 
+    // ---------- paging ----------
+
+    /** A keyset page. Pass {@code nextCursor} back as {@code ?after=}; null means no more. */
+    public record PageView<T>(List<T> items, String nextCursor) {}
+
     // ---------- auth ----------
 
     public record RegisterRequest(
@@ -41,13 +46,13 @@ public final class Dtos {
 
     public record RestaurantView(
             Long id, String name, String description, String cuisine, String address,
-            String phone, String coverImageUrl, String openingTime, String closingTime,
-            boolean acceptingOrders, long menuItemCount) {
+            String phone, String coverImageUrl, ImageVariantsView coverImages,
+            String openingTime, String closingTime, boolean acceptingOrders, long menuItemCount) {
 
         public static RestaurantView of(Restaurant r, long menuItemCount) {
             return new RestaurantView(r.getId(), r.getName(), r.getDescription(), r.getCuisine(),
-                    r.getAddress(), r.getPhone(), r.getCoverImageUrl(), r.getOpeningTime(),
-                    r.getClosingTime(), r.isAcceptingOrders(), menuItemCount);
+                    r.getAddress(), r.getPhone(), r.getCoverImageUrl(), ImageVariantsView.of(r.getCoverImageUrl()),
+                    r.getOpeningTime(), r.getClosingTime(), r.isAcceptingOrders(), menuItemCount);
         }
 
         public static RestaurantView of(Restaurant r) {
@@ -55,6 +60,20 @@ public final class Dtos {
         }
     }
 
+    /**
+     * Resized JPEG copies of an uploaded image: 160, 480 and 1080 px wide at
+     * most. Null when there is no uploaded image.
+     */
+    public record ImageVariantsView(String thumb, String medium, String large) {
+        public static ImageVariantsView of(String imageUrl) {
+            String thumb = ImageNames.publicPath(imageUrl, ImageNames.Size.THUMB);
+            if (thumb == null) return null;
+            return new ImageVariantsView(thumb,
+                    ImageNames.publicPath(imageUrl, ImageNames.Size.MEDIUM),
+                    ImageNames.publicPath(imageUrl, ImageNames.Size.LARGE));
+        }
+    }
+
     public record RestaurantProfileRequest(
             String name, String description, String cuisine, String address,
             String phone, String openingTime, String closingTime, Boolean acceptingOrders) {}
@@ -62,10 +81,11 @@ public final class Dtos {
     // ---------- menu ----------
 
     public record MenuItemView(Long id, String name, String description, BigDecimal price,
-                               String category, String imageUrl, boolean available) {
+                               String category, String imageUrl, ImageVariantsView images,
+                               boolean available) {
         public static MenuItemView of(MenuItem m) {
             return new MenuItemView(m.getId(), m.getName(), m.getDescription(), m.getPrice(),
-                    m.getCategory(), m.getImageUrl(), m.isAvailable());
+                    m.getCategory(), m.getImageUrl(), ImageVariantsView.of(m.getImageUrl()), m.isAvailable());
         }
     }
 
@@ -117,4 +137,10 @@ public final class Dtos {
                     next);
         }
     }
+
+    /**
+     * Result of a "changed since" poll. Pass {@code cursor} back as
+     * {@code ?since=} next time; orders already held should be replaced by id.
+     */
+    public record OrderChangesView(List<OrderView> orders, String cursor) {}
 }
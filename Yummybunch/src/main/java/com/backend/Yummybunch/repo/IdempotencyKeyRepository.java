@@ -0,0 +1,19 @@
+package com.backend.Yummybunch.repo;
+
+import com.backend.Yummybunch.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /** One statement over the createdAt index; no rows are loaded. */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -1,9 +1,15 @@
 package com.backend.Yummybunch.repo;
 
 import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
 
@@ -14,4 +20,29 @@ public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
     long countByRestaurantId(Long restaurantId);
 
     long countByRestaurantIdAndAvailableTrue(Long restaurantId);
+
+    /** The given items, but only those on this restaurant's menu. One IN query for a whole cart. */
+    List<MenuItem> findByRestaurantIdAndIdIn(Long restaurantId, Collection<Long> ids);
+
+    /** Rows of [restaurantId, itemCount]; restaurants with no items are simply absent. */
+    @Query("""
+           SELECT m.restaurant.id, COUNT(m) FROM MenuItem m
+           WHERE m.restaurant.id IN :restaurantIds
+           GROUP BY m.restaurant.id
+           """)
+    List<Object[]> countGroupedByRestaurant(@Param("restaurantIds") Collection<Long> restaurantIds);
+
+    /**
+     * Menu item counts for a whole listing in one grouped query, rather than a
+     * count per restaurant. Every restaurant passed in has an entry, 0 if empty.
+     */
+    default Map<Long, Long> countsFor(Collection<Restaurant> restaurants) {
+        Map<Long, Long> counts = new HashMap<>();
+        restaurants.forEach(r -> counts.put(r.getId(), 0L));
+        if (counts.isEmpty()) return counts;
+        for (Object[] row : countGroupedByRestaurant(counts.keySet())) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
 }
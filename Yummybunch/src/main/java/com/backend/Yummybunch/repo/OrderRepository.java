@@ -2,13 +2,125 @@ package com.backend.Yummybunch.repo;
 
 import com.backend.Yummybunch.domain.Order;
 import com.backend.Yummybunch.domain.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Every finder that feeds an OrderView joins the restaurant and customer in the
+ * same statement; items and events then arrive in batches (see {@link Order}).
+ * Loading a list of orders is therefore a fixed handful of queries rather than
+ * several per order.
+ */
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    @Override
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    Optional<Order> findById(Long id);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
     List<Order> findByCustomerIdOrderByPlacedAtDesc(Long customerId);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
     List<Order> findByRestaurantIdOrderByPlacedAtDesc(Long restaurantId);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> findByCustomerIdAndUpdatedAtAfterOrderByUpdatedAtAsc(Long customerId, Instant since);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> findByRestaurantIdAndUpdatedAtAfterOrderByUpdatedAtAsc(Long restaurantId, Instant since);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
     List<Order> findByRestaurantIdAndStatusInOrderByPlacedAtAsc(Long restaurantId, List<OrderStatus> statuses);
+
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> findByStatusInOrderByPlacedAtAsc(List<OrderStatus> statuses);
+
+    /** Restaurants with an order in one of these statuses, as (restaurant id, owner id) rows. */
+    @Query("SELECT DISTINCT o.restaurant.id, o.restaurant.owner.id FROM Order o WHERE o.status IN :statuses")
+    List<Object[]> findRestaurantAndOwnerIdsWithStatusIn(@Param("statuses") List<OrderStatus> statuses);
     long countByRestaurantId(Long restaurantId);
+
+    /**
+     * Moves one of the restaurant's orders to {@code next}, but only while it is
+     * still in one of {@code from}. There is no read first: the WHERE clause is
+     * the check, and the database applies it against the row as committed, so
+     * two racing moves cannot both succeed.
+     *
+     * @return 1 if it moved; 0 if it is missing, not theirs, or already moved on
+     */
+    @Modifying
+    @Query("""
+           UPDATE Order o
+           SET o.status = :next, o.rejectionReason = :reason, o.updatedAt = :now, o.version = o.version + 1
+           WHERE o.id = :id AND o.restaurant.id = :restaurantId AND o.status IN :from
+           """)
+    int moveForRestaurant(@Param("id") Long id, @Param("restaurantId") Long restaurantId,
+                          @Param("from") List<OrderStatus> from, @Param("next") OrderStatus next,
+                          @Param("reason") String reason, @Param("now") Instant now);
+
+    /** The customer's side of {@link #moveForRestaurant}. */
+    @Modifying
+    @Query("""
+           UPDATE Order o
+           SET o.status = :next, o.updatedAt = :now, o.version = o.version + 1
+           WHERE o.id = :id AND o.customer.id = :customerId AND o.status IN :from
+           """)
+    int moveForCustomer(@Param("id") Long id, @Param("customerId") Long customerId,
+                        @Param("from") List<OrderStatus> from, @Param("next") OrderStatus next,
+                        @Param("now") Instant now);
+
+    /** The first page of a customer's history, newest first; see {@link #pageForCustomer}. */
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> findByCustomerIdOrderByPlacedAtDescIdDesc(Long customerId, Limit limit);
+
+    /**
+     * A later page of a customer's history, newest first, starting after the
+     * (placedAt, id) of the last order already sent.
+     *
+     * The row comparison is what makes this a keyset: the database seeks to the
+     * cursor in idx_orders_customer_placed and reads only the page. Spelled as
+     * "placedAt < x OR (placedAt = x AND id < y)" it cannot be an index range,
+     * so every page would scan from the top like OFFSET. The plain bound on
+     * placedAt is redundant but gives planners without row-value range support
+     * (MySQL) a range to seek on. The first page has its own query rather than
+     * an "IS NULL" switch here, which would defeat the same thing.
+     */
+    @Query("""
+           SELECT o FROM Order o
+           WHERE o.customer.id = :customerId
+             AND o.placedAt <= :afterPlacedAt
+             AND (o.placedAt, o.id) < (:afterPlacedAt, :afterId)
+           ORDER BY o.placedAt DESC, o.id DESC
+           """)
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> pageForCustomer(@Param("customerId") Long customerId,
+                                @Param("afterPlacedAt") Instant afterPlacedAt,
+                                @Param("afterId") Long afterId,
+                                Limit limit);
+
+    /** The first page of a restaurant's incoming orders; see {@link #pageForRestaurant}. */
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> findByRestaurantIdOrderByPlacedAtDescIdDesc(Long restaurantId, Limit limit);
+
+    /** Same as {@link #pageForCustomer}, for a restaurant's incoming orders. */
+    @Query("""
+           SELECT o FROM Order o
+           WHERE o.restaurant.id = :restaurantId
+             AND o.placedAt <= :afterPlacedAt
+             AND (o.placedAt, o.id) < (:afterPlacedAt, :afterId)
+           ORDER BY o.placedAt DESC, o.id DESC
+           """)
+    @EntityGraph(attributePaths = {"restaurant", "customer"})
+    List<Order> pageForRestaurant(@Param("restaurantId") Long restaurantId,
+                                  @Param("afterPlacedAt") Instant afterPlacedAt,
+                                  @Param("afterId") Long afterId,
+                                  Limit limit);
 }
@@ -0,0 +1,66 @@
+package com.backend.Yummybunch.repo;
+
+import com.backend.Yummybunch.domain.OutboundMail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Each write here is its own short transaction. The dispatcher talks to the
+ * mail server between them, so it never holds a pooled connection while it waits.
+ */
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    @Query("""
+           SELECT m.id FROM OutboundMail m
+           WHERE m.status = com.backend.Yummybunch.domain.OutboundMail$Status.PENDING
+             AND m.nextAttemptAt <= :now
+           ORDER BY m.nextAttemptAt
+           """)
+    List<Long> findDueIds(@Param("now") Instant now, Limit limit);
+
+    /**
+     * Takes a due message by moving its next attempt to {@code leaseUntil}.
+     * Only one caller can win. If the process dies mid-send, the message simply
+     * becomes due again when the lease runs out.
+     *
+     * @return 1 if this caller now owns the message, 0 if it was not due
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+           UPDATE OutboundMail m SET m.nextAttemptAt = :leaseUntil
+           WHERE m.id = :id
+             AND m.status = com.backend.Yummybunch.domain.OutboundMail$Status.PENDING
+             AND m.nextAttemptAt <= :now
+           """)
+    int claim(@Param("id") Long id, @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("""
+           UPDATE OutboundMail m
+           SET m.status = com.backend.Yummybunch.domain.OutboundMail$Status.SENT,
+               m.attempts = m.attempts + 1, m.sentAt = :at, m.lastError = NULL
+           WHERE m.id = :id
+           """)
+    int markSent(@Param("id") Long id, @Param("at") Instant at);
+
+    /** Counts a failed attempt; the status is PENDING to retry at {@code retryAt}, or FAILED to give up. */
+    @Transactional
+    @Modifying
+    @Query("""
+           UPDATE OutboundMail m
+           SET m.status = :status, m.attempts = m.attempts + 1,
+               m.nextAttemptAt = :retryAt, m.lastError = :error
+           WHERE m.id = :id
+           """)
+    int markFailed(@Param("id") Long id, @Param("status") OutboundMail.Status status,
+                   @Param("retryAt") Instant retryAt, @Param("error") String error);
+}
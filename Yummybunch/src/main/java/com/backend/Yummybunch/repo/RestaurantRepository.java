@@ -1,10 +1,14 @@
 package com.backend.Yummybunch.repo;
 
 import com.backend.Yummybunch.domain.Restaurant;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +33,63 @@ public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
            """)
     List<Restaurant> search(@Param("q") String q, @Param("cuisine") String cuisine);
 
+    /** The first page of {@link #search}, ordered by (name, id); see {@link #searchPage}. */
+    @Query("""
+           SELECT r FROM Restaurant r
+           WHERE (:q IS NULL OR :q = ''
+                  OR LOWER(r.name)                  LIKE LOWER(CONCAT('%', :q, '%'))
+                  OR LOWER(COALESCE(r.cuisine, '')) LIKE LOWER(CONCAT('%', :q, '%'))
+                  OR LOWER(COALESCE(r.address, '')) LIKE LOWER(CONCAT('%', :q, '%')))
+             AND (:cuisine IS NULL OR :cuisine = '' OR LOWER(r.cuisine) = LOWER(:cuisine))
+           ORDER BY r.name ASC, r.id ASC
+           """)
+    List<Restaurant> searchFirstPage(@Param("q") String q, @Param("cuisine") String cuisine, Limit limit);
+
+    /**
+     * A later page of {@link #search}, starting after the (name, id) of the last
+     * restaurant already sent. A row comparison, with a plain bound on name
+     * beside it, so idx_restaurants_name is entered at the cursor; see
+     * OrderRepository.pageForCustomer.
+     */
+    @Query("""
+           SELECT r FROM Restaurant r
+           WHERE (:q IS NULL OR :q = ''
+                  OR LOWER(r.name)                  LIKE LOWER(CONCAT('%', :q, '%'))
+                  OR LOWER(COALESCE(r.cuisine, '')) LIKE LOWER(CONCAT('%', :q, '%'))
+                  OR LOWER(COALESCE(r.address, '')) LIKE LOWER(CONCAT('%', :q, '%')))
+             AND (:cuisine IS NULL OR :cuisine = '' OR LOWER(r.cuisine) = LOWER(:cuisine))
+             AND r.name >= :afterName
+             AND (r.name, r.id) > (:afterName, :afterId)
+           ORDER BY r.name ASC, r.id ASC
+           """)
+    List<Restaurant> searchPage(@Param("q") String q, @Param("cuisine") String cuisine,
+                                @Param("afterName") String afterName, @Param("afterId") Long afterId,
+                                Limit limit);
+
+    /** What the catalogue's ETag and Last-Modified are built from; see CatalogueService.stamp. */
+    interface Stamp {
+        Instant getCreatedAt();
+        Instant getUpdatedAt();
+        long getMenuVersion();
+    }
+
+    /** One primary-key lookup of three columns, so a revalidation never loads the menu. */
+    @Query("""
+           SELECT r.createdAt AS createdAt, r.updatedAt AS updatedAt, r.menuVersion AS menuVersion
+           FROM Restaurant r WHERE r.id = :id
+           """)
+    Optional<Stamp> findStampById(@Param("id") Long id);
+
+    /**
+     * Records a menu change. Incremented in SQL rather than read-modify-write,
+     * so two concurrent edits can never hand out the same version for
+     * different menus.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Restaurant r SET r.menuVersion = r.menuVersion + 1, r.updatedAt = :at WHERE r.id = :id")
+    int bumpMenuVersion(@Param("id") Long id, @Param("at") Instant at);
+
     @Query("""
            SELECT DISTINCT TRIM(r.cuisine) FROM Restaurant r
            WHERE r.cuisine IS NOT NULL AND TRIM(r.cuisine) <> ''
@@ -0,0 +1,21 @@
+package com.backend.Yummybunch.repo;
+
+import com.backend.Yummybunch.domain.UploadBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface UploadBlobRepository extends JpaRepository<UploadBlob, String> {
+
+    /**
+     * SELECT ... FOR UPDATE: whoever holds the row decides, alone and on every
+     * instance, whether the stored object is still needed. Call inside a transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM UploadBlob b WHERE b.name = :name")
+    Optional<UploadBlob> lockByName(@Param("name") String name);
+}
@@ -2,10 +2,23 @@ package com.backend.Yummybunch.repo;
 
 import com.backend.Yummybunch.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
+
+    /** Exact match. Addresses are stored lower-cased, and this can use the unique index. */
+    Optional<User> findByEmail(String email);
     boolean existsByEmailIgnoreCase(String email);
+
+    /** Swaps in a rehashed password, unless the password changed in the meantime. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
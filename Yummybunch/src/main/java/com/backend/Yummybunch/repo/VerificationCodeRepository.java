@@ -1,8 +1,14 @@
 package com.backend.Yummybunch.repo;
 
 import com.backend.Yummybunch.domain.VerificationCode;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +16,22 @@ public interface VerificationCodeRepository extends JpaRepository<VerificationCo
     /** Most recent code for an address, so an older one cannot be reused. */
     Optional<VerificationCode> findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(String email);
     List<VerificationCode> findByEmailIgnoreCase(String email);
+
+    /**
+     * Spends the code. Only one caller can get 1 back, so a code is never
+     * accepted twice, even by two requests at once.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE VerificationCode v SET v.consumed = true WHERE v.id = :id AND v.consumed = false")
+    int consume(@Param("id") Long id);
+
+    /** Counts only ever go up, so a late write can never hand back a guess. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE VerificationCode v SET v.attempts = :attempts WHERE v.id = :id AND v.attempts < :attempts")
+    int raiseAttempts(@Param("id") Long id, @Param("attempts") int attempts);
+
+    @Query("SELECT v.id FROM VerificationCode v WHERE v.consumed = true OR v.expiresAt < :now")
+    List<Long> findSpentIds(@Param("now") Instant now, Limit limit);
 }
@@ -1,7 +1,6 @@
 package com.backend.Yummybunch.security;
 
 import com.backend.Yummybunch.domain.User;
-import com.backend.Yummybunch.repo.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,12 +17,10 @@ import java.util.List;
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    private final JwtService jwtService;
-    private final UserRepository users;
+    private final PrincipalCache principals;
 
-    public JwtAuthFilter(JwtService jwtService, UserRepository users) {
-        this.jwtService = jwtService;
-        this.users = users;
+    public JwtAuthFilter(PrincipalCache principals) {
+        this.principals = principals;
     }
 
     @Override
@@ -35,17 +32,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")
                 && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            String email = jwtService.emailFrom(header.substring(7));
-            if (email != null) {
-                users.findByEmailIgnoreCase(email).ifPresent(user -> {
-                    // An unverified account holds no privileges, even with a valid token.
-                    if (user.isEmailVerified()) {
-                        var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
-                        // The principal is our own User, so controllers can use it directly.
-                        var auth = new UsernamePasswordAuthenticationToken(user, null, authorities);
-                        SecurityContextHolder.getContext().setAuthentication(auth);
-                    }
-                });
+            // Null for a bad or expired token, or an unverified account.
+            User user = principals.resolve(header.substring(7));
+            if (user != null) {
+                var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+                // The principal is our own User, so controllers can use it directly.
+                var auth = new UsernamePasswordAuthenticationToken(user, null, authorities);
+                SecurityContextHolder.getContext().setAuthentication(auth);
             }
         }
 
@@ -1,6 +1,11 @@
 package com.backend.Yummybunch.security;
 
+import com.backend.Yummybunch.domain.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -10,12 +15,44 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
+    /** How many recently verified tokens to remember; roughly one per active session. */
+    private static final int VERIFIED_TOKENS = 10_000;
+
     private final SecretKey key;
     private final long validityMs;
+    // Thread-safe once built, and building one is not free.
+    private final JwtParser parser;
+    /**
+     * Tokens whose signature already checked out, each kept until its own exp.
+     * Dashboards poll with the same bearer every few seconds; a hit skips the
+     * HMAC and the JSON parse. Keyed by the token itself: hashing it first would
+     * cost about as much as the check being skipped, and string equality leaves
+     * no room for collisions.
+     */
+    private final Cache<String, Verified> verified = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKENS)
+            .expireAfter(new Expiry<String, Verified>() {
+                @Override
+                public long expireAfterCreate(String token, Verified v, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, v.expiresAtMs() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, Verified v, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String token, Verified v, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
 
     public JwtService(
             @Value("${jwt.secret}") String secret,
@@ -29,30 +66,58 @@ public class JwtService {
         }
         this.key = Keys.hmacShaKeyFor(bytes);
         this.validityMs = validityMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
-    public String issue(String email, String role) {
+    /**
+     * Signs a token for the user. Besides the email it carries the user id, role
+     * and verified flag, so a request can be authenticated by id — a primary key
+     * lookup, usually answered from {@link PrincipalCache} — rather than by email.
+     */
+    public String issue(User user) {
         Date now = new Date();
         return Jwts.builder()
-                .setSubject(email)
-                .claim("role", role)
+                .setSubject(user.getEmail())
+                .claim("uid", user.getId())
+                .claim("role", user.getRole().name())
+                .claim("verified", user.isEmailVerified())
                 .setIssuedAt(now)
                 .setExpiration(new Date(now.getTime() + validityMs))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    /** @return the subject (email), or null when the token is invalid or expired. */
-    public String emailFrom(String token) {
+    /**
+     * @return the verified claims, or null when the token is invalid or expired.
+     *         Tokens issued before the id claim existed have a null userId.
+     */
+    public TokenClaims parse(String token) {
+        Verified hit = verified.getIfPresent(token);
+        if (hit != null) return hit.claims();
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            return claims.getSubject();
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Number uid = claims.get("uid", Number.class);
+            Boolean isVerified = claims.get("verified", Boolean.class);
+            TokenClaims result = new TokenClaims(uid == null ? null : uid.longValue(), claims.getSubject(),
+                    claims.get("role", String.class), isVerified == null || isVerified);
+            // The parser refuses expired tokens, so exp is always set and in the future here.
+            if (claims.getExpiration() != null) {
+                verified.put(token, new Verified(result, claims.getExpiration().getTime()));
+            }
+            return result;
         } catch (Exception e) {
+            // Failures are not cached: a bad token costs the full check every time.
             return null;
         }
     }
+
+    /** @return the subject (email), or null when the token is invalid or expired. */
+    public String emailFrom(String token) {
+        TokenClaims claims = parse(token);
+        return claims == null ? null : claims.email();
+    }
+
+    public record TokenClaims(Long userId, String email, String role, boolean verified) {}
+
+    private record Verified(TokenClaims claims, long expiresAtMs) {}
 }
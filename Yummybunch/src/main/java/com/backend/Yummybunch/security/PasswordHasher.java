@@ -0,0 +1,105 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.web.ApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Password hashing and checking, on a pool of its own.
+ *
+ * BCrypt is deliberately slow. On a 0.1-CPU instance, a burst of logins hashed
+ * on Tomcat's own threads took all of them, and catalogue browsing stalled
+ * behind it. Here hashing gets a fixed number of threads and a short queue;
+ * when both are full the caller gets a 503 straight away instead of waiting.
+ * These stay platform threads even with the virtual profile: hashing is pure
+ * CPU, and it is the cap on that which matters.
+ *
+ * Metrics: {@code auth.password.hashing} (time per op, tagged hash/verify),
+ * {@code auth.password.queued} and {@code auth.password.rejected}.
+ */
+@Component
+public class PasswordHasher {
+
+    /** The cost factor in a BCrypt hash: "$2a$10$...". */
+    private static final Pattern BCRYPT_STRENGTH = Pattern.compile("^\\$2[aby]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder encoder;
+    private final int strength;
+    private final ThreadPoolExecutor pool;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder encoder, MeterRegistry meters,
+                          @Value("${auth.bcrypt.strength:10}") int strength,
+                          @Value("${auth.hash.threads:1}") int threads,
+                          @Value("${auth.hash.queue:8}") int queue) {
+        this.encoder = encoder;
+        this.strength = strength;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.hashTimer = Timer.builder("auth.password.hashing").tag("op", "hash").register(meters);
+        this.verifyTimer = Timer.builder("auth.password.hashing").tag("op", "verify").register(meters);
+        this.rejected = Counter.builder("auth.password.rejected").register(meters);
+        Gauge.builder("auth.password.queued", pool, p -> p.getQueue().size()).register(meters);
+    }
+
+    public String hash(String rawPassword) {
+        return run(hashTimer, () -> encoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String hash) {
+        return run(verifyTimer, () -> encoder.matches(rawPassword, hash));
+    }
+
+    /** True when the hash was made at a different strength than the one configured now. */
+    public boolean needsRehash(String hash) {
+        Matcher m = BCRYPT_STRENGTH.matcher(hash == null ? "" : hash);
+        return m.find() && Integer.parseInt(m.group(1)) != strength;
+    }
+
+    private <T> T run(Timer timer, Callable<T> work) {
+        Future<T> result;
+        try {
+            result = pool.submit(() -> timer.recordCallable(work));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many sign-ins at once. Please try again in a moment.");
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+}
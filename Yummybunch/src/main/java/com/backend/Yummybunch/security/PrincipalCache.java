@@ -0,0 +1,74 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.repo.UserRepository;
+import com.backend.Yummybunch.service.AccountChanged;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+
+/**
+ * Turns a bearer token into the signed-in {@link User}, remembering recent
+ * users for a short while.
+ *
+ * Every authenticated request used to look its user up by email. With
+ * dashboards polling, that was a database round trip per request just to
+ * authenticate. Users are now cached by the id carried in the token; the cache
+ * is small, expires quickly (see CacheConfig) and is cleared for an account as
+ * soon as {@link AccountChanged} says it was verified or removed.
+ *
+ * The cached User is a detached snapshot shared between requests. Treat it as
+ * read-only.
+ */
+@Component
+public class PrincipalCache {
+
+    public static final String CACHE = "auth.principals";
+
+    private final JwtService jwtService;
+    private final UserRepository users;
+    private final CacheManager caches;
+
+    public PrincipalCache(JwtService jwtService, UserRepository users, CacheManager caches) {
+        this.jwtService = jwtService;
+        this.users = users;
+        this.caches = caches;
+    }
+
+    /** @return the verified user the token belongs to, or null when it grants nothing. */
+    public User resolve(String token) {
+        JwtService.TokenClaims claims = jwtService.parse(token);
+        // An unverified account holds no privileges, even with a valid token.
+        if (claims == null || claims.email() == null || !claims.verified()) return null;
+
+        User user;
+        if (claims.userId() != null) {
+            user = cache().get(claims.userId(), () -> users.findById(claims.userId()).orElse(null));
+        } else {
+            // Issued before tokens carried the id. Addresses are stored lower-cased,
+            // so an exact match can use the unique index.
+            user = users.findByEmail(claims.email().toLowerCase(Locale.ROOT)).orElse(null);
+            if (user != null) cache().put(user.getId(), user);
+        }
+
+        if (user == null || !user.isEmailVerified() || !user.getEmail().equalsIgnoreCase(claims.email())) {
+            return null;
+        }
+        return user;
+    }
+
+    /** Runs after commit, so a request racing the change cannot re-cache the old state. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(AccountChanged change) {
+        cache().evict(change.userId());
+    }
+
+    private Cache cache() {
+        Cache cache = caches.getCache(CACHE);
+        if (cache == null) throw new IllegalStateException("Cache " + CACHE + " is not configured");
+        return cache;
+    }
+}
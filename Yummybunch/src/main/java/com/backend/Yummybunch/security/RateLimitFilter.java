@@ -0,0 +1,180 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+/**
+ * Per-client request limits, checked before anything reaches a controller.
+ *
+ * Sign-in, sign-up and verification were unthrottled, so one scripted client
+ * could keep every Tomcat thread busy hashing passwords. Each route group has
+ * its own limit, written as {@code requests/period} (for example
+ * {@code ratelimit.auth=20/1m}); {@code off} lifts it. A signed-in caller is
+ * counted by user id, anyone else by address. Over the limit the answer is a
+ * 429 with Retry-After, decided without touching the database.
+ *
+ * Each client's bucket is one AtomicLong, the time at which it will be full
+ * again (the GCRA form of a token bucket), moved forward by compare-and-set, so
+ * requests never wait on a lock. Buckets live in a bounded Caffeine cache,
+ * itself striped, and are dropped once idle for a whole period, by which time
+ * they would be full anyway.
+ *
+ * Runs after JwtAuthFilter in the security chain, so the user is known. Like
+ * the kitchen queue, counts are per instance.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final List<Group> groups;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    @Autowired
+    public RateLimitFilter(@Value("${ratelimit.auth:20/1m}") String auth,
+                           @Value("${ratelimit.orders:10/1m}") String orders,
+                           @Value("${ratelimit.api:300/1m}") String api) {
+        this(List.of(
+                // Password hashing and outgoing mail: the expensive, unauthenticated calls.
+                new Group("auth", Limit.parse(auth),
+                        antMatcher(HttpMethod.POST, "/api/auth/login"),
+                        antMatcher(HttpMethod.POST, "/api/auth/register"),
+                        antMatcher(HttpMethod.POST, "/api/auth/verify"),
+                        antMatcher(HttpMethod.POST, "/api/auth/resend")),
+                new Group("orders", Limit.parse(orders), antMatcher(HttpMethod.POST, "/api/orders")),
+                new Group("api", Limit.parse(api), antMatcher("/api/**"))), System::nanoTime);
+    }
+
+    /** First matching group wins. */
+    RateLimitFilter(List<Group> groups, LongSupplier nanoClock) {
+        this.groups = groups;
+        this.nanoClock = nanoClock;
+        long longestPeriod = groups.stream().filter(g -> g.limit() != null)
+                .mapToLong(g -> g.limit().periodNanos()).max().orElse(1);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(longestPeriod, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+
+        Group group = matching(request);
+        if (group != null && group.limit() != null) {
+            long now = nanoClock.getAsLong();
+            AtomicLong bucket = buckets.get(group.name() + ":" + client(request), k -> new AtomicLong(now));
+            long waitNanos = take(bucket, group.limit(), now);
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    // ---------- helpers ----------
+
+    /** One request's worth, refilled evenly: {@code requests} at once, then one per period/requests. */
+    record Limit(int requests, long periodNanos) {
+
+        /** "20/1m", "5/30s", or "off". */
+        static Limit parse(String spec) {
+            if (spec.isBlank() || spec.equalsIgnoreCase("off")) return null;
+            String[] parts = spec.split("/", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("A rate limit looks like 20/1m, not " + spec);
+            }
+            int requests = Integer.parseInt(parts[0].trim());
+            Duration period = DurationStyle.detectAndParse(parts[1].trim());
+            if (requests < 1 || period.isZero() || period.isNegative()) {
+                throw new IllegalArgumentException("A rate limit needs at least 1 request in a positive period, not "
+                        + spec);
+            }
+            return new Limit(requests, period.toNanos());
+        }
+
+        long intervalNanos() {
+            return periodNanos / requests;
+        }
+    }
+
+    record Group(String name, Limit limit, RequestMatcher... matchers) {
+
+        boolean matches(HttpServletRequest request) {
+            for (RequestMatcher m : matchers) {
+                if (m.matches(request)) return true;
+            }
+            return false;
+        }
+    }
+
+    private Group matching(HttpServletRequest request) {
+        // CORS preflights carry no credentials and cost nothing.
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) return null;
+        for (Group g : groups) {
+            if (g.matches(request)) return g;
+        }
+        return null;
+    }
+
+    private static String client(HttpServletRequest request) {
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof User user) return "user:" + user.getId();
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * The bucket holds the moment it will next be full. Taking a request pushes
+     * that one interval later; if it would then lie more than a whole period
+     * ahead, the bucket is empty and the caller waits for the difference.
+     *
+     * @return 0 if the request may go ahead, otherwise nanoseconds until it could
+     */
+    private static long take(AtomicLong bucket, Limit limit, long now) {
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + limit.intervalNanos();
+            long wait = next - now - limit.periodNanos();
+            if (wait > 0) return wait;
+            if (bucket.compareAndSet(fullAt, next)) return 0;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // Same shape as GlobalExceptionHandler's errors.
+        response.getWriter().write("{\"message\":\"Too many requests. Please try again in "
+                + seconds + (seconds == 1 ? " second" : " seconds") + ".\"}");
+    }
+}
@@ -0,0 +1,93 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions with the same JWT the REST API accepts, and
+ * decides who may listen to which order topic.
+ *
+ * A customer may only subscribe to their own topic and an owner only to their
+ * own restaurant's, so one account can never watch another's orders.
+ */
+@Component
+public class StompAuthInterceptor implements ChannelInterceptor {
+
+    /** Must match the topics {@code OrderUpdatePublisher} sends to. */
+    private static final Pattern CUSTOMER_TOPIC = Pattern.compile("^/topic/customers/(\\d+)/orders$");
+    private static final Pattern RESTAURANT_TOPIC = Pattern.compile("^/topic/restaurants/(\\d+)/orders$");
+
+    private final PrincipalCache principals;
+    private final RestaurantRepository restaurants;
+
+    public StompAuthInterceptor(PrincipalCache principals, RestaurantRepository restaurants) {
+        this.principals = principals;
+        this.restaurants = restaurants;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) return message;
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+            case SUBSCRIBE -> authorise(userOf(accessor.getUser()), accessor.getDestination());
+            // The channel is push-only; nothing a client sends is ever handled.
+            case SEND -> throw new AccessDeniedException("Clients cannot publish on this channel");
+            default -> { }
+        }
+        return message;
+    }
+
+    private Principal authenticate(String header) {
+        if (header == null || !header.startsWith("Bearer ")) {
+            throw new AccessDeniedException("Sign in to continue");
+        }
+        User user = principals.resolve(header.substring(7));
+        if (user == null) {
+            throw new AccessDeniedException("Sign in to continue");
+        }
+        var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        return new UsernamePasswordAuthenticationToken(user, null, authorities);
+    }
+
+    private void authorise(User user, String destination) {
+        if (destination != null) {
+            Matcher customer = CUSTOMER_TOPIC.matcher(destination);
+            if (customer.matches() && user.getId().equals(Long.valueOf(customer.group(1)))) {
+                return;
+            }
+            Matcher restaurant = RESTAURANT_TOPIC.matcher(destination);
+            if (restaurant.matches() && user.getRole() == User.Role.RESTAURANT
+                    && restaurants.findByOwnerId(user.getId())
+                            .map(r -> r.getId().equals(Long.valueOf(restaurant.group(1))))
+                            .orElse(false)) {
+                return;
+            }
+        }
+        throw new AccessDeniedException("You cannot subscribe to " + destination);
+    }
+
+    private static User userOf(Principal principal) {
+        if (principal instanceof UsernamePasswordAuthenticationToken auth
+                && auth.getPrincipal() instanceof User user) {
+            return user;
+        }
+        throw new AccessDeniedException("Sign in to continue");
+    }
+}
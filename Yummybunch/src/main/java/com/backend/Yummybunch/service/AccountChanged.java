@@ -0,0 +1,4 @@
+package com.backend.Yummybunch.service;
+
+/** Published when an account is verified or removed, so cached copies of it are dropped. */
+public record AccountChanged(Long userId) {}
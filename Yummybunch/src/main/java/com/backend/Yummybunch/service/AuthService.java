@@ -2,16 +2,18 @@ package com.backend.Yummybunch.service;
 
 import com.backend.Yummybunch.domain.Restaurant;
 import com.backend.Yummybunch.domain.User;
-import com.backend.Yummybunch.domain.VerificationCode;
 import com.backend.Yummybunch.repo.RestaurantRepository;
 import com.backend.Yummybunch.repo.UserRepository;
 import com.backend.Yummybunch.repo.VerificationCodeRepository;
 import com.backend.Yummybunch.security.JwtService;
+import com.backend.Yummybunch.security.PasswordHasher;
 import com.backend.Yummybunch.web.ApiException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.SecureRandom;
 import java.time.Duration;
@@ -20,26 +22,32 @@ import java.time.Instant;
 @Service
 public class AuthService {
 
-    private static final Duration CODE_TTL = Duration.ofMinutes(10);
     private static final Duration RESEND_COOLDOWN = Duration.ofSeconds(60);
 
     private final UserRepository users;
     private final RestaurantRepository restaurants;
     private final VerificationCodeRepository codes;
-    private final PasswordEncoder encoder;
+    private final VerificationCodeStore codeStore;
+    private final PasswordHasher passwords;
     private final JwtService jwt;
     private final MailService mail;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactions;
     private final SecureRandom random = new SecureRandom();
 
     public AuthService(UserRepository users, RestaurantRepository restaurants,
-                       VerificationCodeRepository codes, PasswordEncoder encoder,
-                       JwtService jwt, MailService mail) {
+                       VerificationCodeRepository codes, VerificationCodeStore codeStore,
+                       PasswordHasher passwords, JwtService jwt, MailService mail,
+                       ApplicationEventPublisher events, PlatformTransactionManager transactionManager) {
         this.users = users;
         this.restaurants = restaurants;
         this.codes = codes;
-        this.encoder = encoder;
+        this.codeStore = codeStore;
+        this.passwords = passwords;
         this.jwt = jwt;
         this.mail = mail;
+        this.events = events;
+        this.transactions = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -47,7 +55,6 @@ public class AuthService {
      * For a RESTAURANT signup the restaurant row is created at the same time,
      * so the owner has somewhere to put a menu the moment they verify.
      */
-    @Transactional
     public void register(String email, String rawPassword, String name, String phone,
                          User.Role role, String restaurantName, String address, String cuisine) {
 
@@ -58,20 +65,33 @@ public class AuthService {
         }
         if (name == null || name.isBlank()) throw new ApiException(HttpStatus.BAD_REQUEST, "Name is required");
 
+        // Hash before the transaction opens, so a queue for the hashing pool
+        // never holds a pooled connection.
+        String passwordHash = passwords.hash(rawPassword);
+        transactions.executeWithoutResult(tx ->
+                createAccount(normalised, passwordHash, name, phone, role, restaurantName, address, cuisine));
+    }
+
+    private void createAccount(String normalised, String passwordHash, String name, String phone,
+                               User.Role role, String restaurantName, String address, String cuisine) {
         users.findByEmailIgnoreCase(normalised).ifPresent(existing -> {
             if (existing.isEmailVerified()) {
                 throw new ApiException(HttpStatus.CONFLICT, "That email is already registered. Try signing in.");
             }
             // Signed up but never confirmed: let them start over rather than be stuck.
             codes.deleteAll(codes.findByEmailIgnoreCase(normalised));
-            restaurants.findByOwnerId(existing.getId()).ifPresent(restaurants::delete);
+            restaurants.findByOwnerId(existing.getId()).ifPresent(r -> {
+                restaurants.delete(r);
+                events.publishEvent(new RestaurantChanged(r.getId()));
+            });
             users.delete(existing);
+            events.publishEvent(new AccountChanged(existing.getId()));
             users.flush();
         });
 
         User user = new User();
         user.setEmail(normalised);
-        user.setPasswordHash(encoder.encode(rawPassword));
+        user.setPasswordHash(passwordHash);
         user.setName(name.trim());
         user.setPhone(phone);
         user.setRole(role);
@@ -90,25 +110,21 @@ public class AuthService {
             r.setPhone(phone);
             r.setDescription("Welcome to " + restaurantName.trim());
             restaurants.save(r);
+            events.publishEvent(new RestaurantChanged(r.getId()));
         }
 
         issueCode(normalised, user.getName());
     }
 
-    /** Generates, stores and emails a fresh code. */
+    /** Generates and stores a fresh code, and queues the email that carries it. */
     @Transactional
     public void issueCode(String email, String name) {
         String code = String.format("%06d", random.nextInt(1_000_000));
+        codeStore.issue(email, code);
 
-        VerificationCode vc = new VerificationCode();
-        vc.setEmail(email);
-        vc.setCode(code);
-        vc.setExpiresAt(Instant.now().plus(CODE_TTL));
-        codes.save(vc);
-
-        // If the mail server rejects this, the transaction rolls back and the
-        // caller gets a real error — no account left in limbo with no code sent.
-        mail.sendVerificationCode(email, name, code);
+        // Only queued here; it is sent after commit, with retries (see MailDispatcher).
+        // Missing mail settings still fail the request and roll it back.
+        mail.queueVerificationCode(email, name, code);
     }
 
     @Transactional
@@ -120,20 +136,27 @@ public class AuthService {
             throw new ApiException(HttpStatus.BAD_REQUEST, "That email is already verified. You can sign in.");
         }
 
-        codes.findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(normalised).ifPresent(latest -> {
-            Duration since = Duration.between(latest.getCreatedAt(), Instant.now());
+        VerificationCodeStore.Code latest = codeStore.latest(normalised);
+        if (latest != null) {
+            Duration since = Duration.between(latest.createdAt(), Instant.now());
             if (since.compareTo(RESEND_COOLDOWN) < 0) {
                 long wait = RESEND_COOLDOWN.minus(since).toSeconds() + 1;
                 throw new ApiException(HttpStatus.TOO_MANY_REQUESTS,
                         "Please wait " + wait + " seconds before requesting another code.");
             }
-        });
+        }
 
         issueCode(normalised, user.getName());
     }
 
-    /** Confirms the address and returns a signed token so the user is logged straight in. */
-    @Transactional
+    /**
+     * Confirms the address and returns a signed token so the user is logged straight in.
+     *
+     * A refused guess still commits: the guess that reaches the limit is written
+     * inside this transaction (see VerificationCodeStore.takeAttempt), and nothing
+     * else here writes before a refusal.
+     */
+    @Transactional(noRollbackFor = ApiException.class)
     public AuthResult verify(String email, String submittedCode) {
         String normalised = email == null ? "" : email.trim().toLowerCase();
         User user = users.findByEmailIgnoreCase(normalised)
@@ -147,31 +170,33 @@ public class AuthService {
                     "That email is already verified. Please sign in.");
         }
 
-        VerificationCode vc = codes.findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(normalised)
-                .orElseThrow(() -> new ApiException(HttpStatus.BAD_REQUEST,
-                        "No code has been sent. Request a new one."));
+        VerificationCodeStore.Code vc = codeStore.latest(normalised);
+        if (vc == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "No code has been sent. Request a new one.");
+        }
 
-        if (!vc.isUsable()) {
+        int left = vc.isUsable() ? codeStore.takeAttempt(vc) : -1;
+        if (left < 0) {
             throw new ApiException(HttpStatus.BAD_REQUEST,
                     vc.isExpired() ? "That code has expired. Request a new one."
                                    : "That code is no longer valid. Request a new one.");
         }
 
-        if (!vc.getCode().equals(submittedCode == null ? "" : submittedCode.trim())) {
-            vc.setAttempts(vc.getAttempts() + 1);
-            codes.save(vc);
-            int left = Math.max(0, 5 - vc.getAttempts());
+        // Wrong guesses are only counted in memory; see VerificationCodeStore.
+        if (!vc.matches(submittedCode)) {
             throw new ApiException(HttpStatus.BAD_REQUEST, left == 0
                     ? "Incorrect code. No attempts left — request a new one."
                     : "Incorrect code. " + left + " attempt(s) left.");
         }
 
-        vc.setConsumed(true);
-        codes.save(vc);
+        if (!codeStore.consume(vc)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "That code is no longer valid. Request a new one.");
+        }
         user.setEmailVerified(true);
         users.save(user);
+        events.publishEvent(new AccountChanged(user.getId()));
 
-        return new AuthResult(jwt.issue(user.getEmail(), user.getRole().name()), user);
+        return new AuthResult(jwt.issue(user), user);
     }
 
     public AuthResult login(String email, String rawPassword) {
@@ -181,14 +206,31 @@ public class AuthService {
                 // cannot be used to discover which addresses are registered.
                 .orElseThrow(() -> new ApiException(HttpStatus.UNAUTHORIZED, "Incorrect email or password"));
 
-        if (!encoder.matches(rawPassword == null ? "" : rawPassword, user.getPasswordHash())) {
+        String raw = rawPassword == null ? "" : rawPassword;
+        if (!passwords.matches(raw, user.getPasswordHash())) {
             throw new ApiException(HttpStatus.UNAUTHORIZED, "Incorrect email or password");
         }
+        rehashIfNeeded(user, raw);
         if (!user.isEmailVerified()) {
             throw new ApiException(HttpStatus.FORBIDDEN, "EMAIL_NOT_VERIFIED");
         }
 
-        return new AuthResult(jwt.issue(user.getEmail(), user.getRole().name()), user);
+        return new AuthResult(jwt.issue(user), user);
+    }
+
+    /**
+     * Moves a hash to the configured strength now that we have the password in
+     * hand. Best effort: when the hashing pool is busy it waits for a later login.
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwords.needsRehash(user.getPasswordHash())) return;
+        try {
+            String upgraded = passwords.hash(rawPassword);
+            users.replacePasswordHash(user.getId(), user.getPasswordHash(), upgraded);
+            user.setPasswordHash(upgraded);
+        } catch (ApiException busy) {
+            // Not worth failing a good login over.
+        }
     }
 
     public record AuthResult(String token, User user) {}
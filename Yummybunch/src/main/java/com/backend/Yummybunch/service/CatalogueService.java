@@ -0,0 +1,206 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.dto.Dtos.MenuItemView;
+import com.backend.Yummybunch.dto.Dtos.PageView;
+import com.backend.Yummybunch.dto.Dtos.RestaurantView;
+import com.backend.Yummybunch.repo.MenuItemRepository;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.web.ApiException;
+import com.backend.Yummybunch.web.PageCursor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read side of the public catalogue, cached in memory.
+ *
+ * Anonymous browsing far outweighs ordering, and this data only changes when an
+ * owner edits, so repeat page views are answered without touching the database
+ * (or one of its few pooled connections). Every cached value is an immutable
+ * view, never an entity, so it is safe to share between requests.
+ */
+@Service
+public class CatalogueService {
+
+    public static final String LISTS = "catalogue.lists";
+    public static final String PAGES = "catalogue.pages";
+    public static final String RESTAURANTS = "catalogue.restaurants";
+    public static final String MENUS = "catalogue.menus";
+    public static final String CUISINES = "catalogue.cuisines";
+    public static final String STAMPS = "catalogue.stamps";
+
+    private final RestaurantRepository restaurants;
+    private final MenuItemRepository menuItems;
+    private final RestaurantSearch search;
+    private final CacheManager caches;
+    private final TransactionTemplate reads;
+    /** Counts evictions, so a stamp read before one is never cached after it. */
+    private final AtomicLong changes = new AtomicLong();
+
+    /** A cached response body with the validators sent as ETag and Last-Modified. */
+    public record Versioned<T>(T body, String etag, Instant lastModified) {}
+
+    /**
+     * The versions a restaurant's public responses are tagged with. The profile
+     * tag follows updatedAt, which every profile, cover and menu edit sets, and
+     * the menu version too, since the profile shows the item count.
+     */
+    public record Stamp(Long restaurantId, Instant lastModified, long menuVersion) {
+
+        public String restaurantTag() {
+            return "\"restaurant-" + restaurantId + "-" + ChronoUnit.MICROS.between(Instant.EPOCH, lastModified)
+                    + "-" + menuVersion + "\"";
+        }
+
+        public String menuTag() {
+            return "\"menu-" + restaurantId + "-" + menuVersion + "\"";
+        }
+    }
+
+    public CatalogueService(RestaurantRepository restaurants, MenuItemRepository menuItems,
+                            RestaurantSearch search, CacheManager caches,
+                            PlatformTransactionManager transactionManager) {
+        this.restaurants = restaurants;
+        this.menuItems = menuItems;
+        this.search = search;
+        this.caches = caches;
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+    }
+
+    @Cacheable(LISTS)
+    public List<RestaurantView> list(String q, String cuisine) {
+        return views(search.find(q, cuisine));
+    }
+
+    @Cacheable(PAGES)
+    public PageView<RestaurantView> page(String q, String cuisine, String after, Integer limit) {
+        PageCursor cursor = PageCursor.decode(after);
+        int size = PageCursor.pageSize(limit);
+        List<Restaurant> rows = search.findPage(q, cuisine, cursor, size + 1);
+
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Restaurant last = rows.get(size - 1);
+            next = new PageCursor(last.getName(), last.getId()).encode();
+        }
+        return new PageView<>(views(rows), next);
+    }
+
+    /**
+     * The validators for a restaurant and its menu, known without loading
+     * either, so a client that is up to date gets its 304 from this alone.
+     * Cached; on a miss it is one primary-key lookup.
+     */
+    public Stamp stamp(Long id) {
+        Cache cache = cache(STAMPS);
+        Stamp cached = cache.get(id, Stamp.class);
+        if (cached != null) return cached;
+
+        long seen = changes.get();
+        Stamp stamp = readStamp(id);
+        // An edit committed while we read may already have evicted: keep ours out of the cache then.
+        if (changes.get() == seen) cache.put(id, stamp);
+        return stamp;
+    }
+
+    public Versioned<RestaurantView> restaurant(Long id) {
+        return current(RESTAURANTS, id, stamp(id).restaurantTag(), () -> reads.execute(tx -> {
+            Stamp stamp = readStamp(id);
+            Restaurant r = restaurants.findById(id)
+                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Restaurant not found"));
+            return new Versioned<>(views(List.of(r)).get(0), stamp.restaurantTag(), stamp.lastModified());
+        }));
+    }
+
+    /**
+     * Only items the restaurant has marked available are exposed publicly.
+     *
+     * The version is read before the items. A menu edit commits both at once,
+     * so one landing in between can only make the body newer than its tag:
+     * the client is then sent the menu again on its next visit, but never told
+     * 304 for a menu it does not have.
+     */
+    public Versioned<List<MenuItemView>> menu(Long id) {
+        return current(MENUS, id, stamp(id).menuTag(), () -> reads.execute(tx -> {
+            Stamp stamp = readStamp(id);
+            List<MenuItemView> items = menuItems.findByRestaurantIdAndAvailableTrueOrderByCategoryAscNameAsc(id)
+                    .stream().map(MenuItemView::of).toList();
+            return new Versioned<>(items, stamp.menuTag(), stamp.lastModified());
+        }));
+    }
+
+    @Cacheable(CUISINES)
+    public List<String> cuisines() {
+        return restaurants.findDistinctCuisines();
+    }
+
+    /**
+     * Drops everything the change could have affected: that restaurant's own
+     * entries, and every list, since any of them might include it. Ordered last,
+     * so the search index has already caught up before a list can be re-cached.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onChange(RestaurantChanged change) {
+        changes.incrementAndGet();
+        cache(STAMPS).evict(change.restaurantId());
+        cache(RESTAURANTS).evict(change.restaurantId());
+        cache(MENUS).evict(change.restaurantId());
+        cache(LISTS).clear();
+        cache(PAGES).clear();
+        cache(CUISINES).clear();
+    }
+
+    /** Views with menu item counts, fetched for the whole list in one query. */
+    private List<RestaurantView> views(List<Restaurant> list) {
+        Map<Long, Long> counts = menuItems.countsFor(list);
+        return list.stream().map(r -> RestaurantView.of(r, counts.get(r.getId()))).toList();
+    }
+
+    /**
+     * The cached body if it carries the current tag, else a fresh one. A reader
+     * that started before an edit can re-cache its body after the edit's
+     * eviction; its tag then no longer matches, so it is replaced here rather
+     * than served until the TTL.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Versioned<T> current(String name, Long id, String tag, Supplier<Versioned<T>> load) {
+        Cache cache = cache(name);
+        Versioned<T> cached = cache.get(id, Versioned.class);
+        if (cached != null && cached.etag().equals(tag)) return cached;
+        Versioned<T> fresh = load.get();
+        cache.put(id, fresh);
+        return fresh;
+    }
+
+    /** Rows written before updatedAt existed fall back to their creation time. */
+    private Stamp readStamp(Long id) {
+        RestaurantRepository.Stamp s = restaurants.findStampById(id)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Restaurant not found"));
+        Instant lastModified = s.getUpdatedAt() != null ? s.getUpdatedAt() : s.getCreatedAt();
+        return new Stamp(id, lastModified, s.getMenuVersion());
+    }
+
+    private Cache cache(String name) {
+        Cache cache = caches.getCache(name);
+        if (cache == null) throw new IllegalStateException("Cache " + name + " is not configured");
+        return cache;
+    }
+}
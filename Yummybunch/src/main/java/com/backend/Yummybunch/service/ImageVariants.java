@@ -0,0 +1,231 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.ImageNames;
+import com.backend.Yummybunch.domain.ImageNames.Size;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resized copies of uploaded images, so a menu page does not pull every photo
+ * at full size.
+ *
+ * Each upload gets three JPEGs stored beside the original, e.g. {@code ab12.png} gets
+ * {@code ab12-thumb.jpg}, {@code ab12-medium.jpg} and {@code ab12-large.jpg}.
+ * They are made in the background on one worker with a short queue, so an
+ * upload returns at once and only one image is ever decoded at a time.
+ * Decoding is subsampled towards the largest size, so memory stays bounded by
+ * the output rather than by the upload. Until a variant exists, or if the
+ * queue was full, /uploads serves the original in its place and asks for
+ * the variant again (see UploadController).
+ */
+@Component
+public class ImageVariants {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageVariants.class);
+
+    private static final List<String> ORIGINAL_EXTENSIONS = List.of("jpg", "png", "gif", "webp");
+    /** Refuse to decode anything bigger: a tiny file can claim enormous dimensions. */
+    private static final long MAX_PIXELS = 50_000_000L;
+    private static final float JPEG_QUALITY = 0.8f;
+
+    private final StorageService storage;
+    private final ThreadPoolExecutor worker;
+    /** Originals queued or in progress, so a burst of misses queues each once. */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    /** Original name by its base, e.g. {@code ab12} to {@code ab12.png}, so a miss need not try each extension. */
+    private final Cache<String, String> originals = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public ImageVariants(StorageService storage, @Value("${images.variants.queue:32}") int queue) {
+        this.storage = storage;
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), new CustomizableThreadFactory("image-variants-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @EventListener
+    public void onStored(StorageService.ImageStored stored) {
+        originals.put(ImageNames.base(stored.name()), stored.name());
+        request(stored.name());
+    }
+
+    /** So fallbackFor never points at a deleted original (under S3, a redirect to a 404). */
+    @EventListener
+    public void onDeleted(StorageService.ImageDeleted deleted) {
+        originals.invalidate(ImageNames.base(deleted.name()));
+    }
+
+    /**
+     * For a variant that does not exist (yet), the name of its original, with
+     * the variant queued again. Null when the name is not a variant or the
+     * original is gone.
+     */
+    public String fallbackFor(String requestedName) {
+        String base = ImageNames.originalBase(requestedName);
+        if (base == null) return null;
+        String known = originals.getIfPresent(base);
+        if (known != null) {
+            request(known);
+            return known;
+        }
+        for (String ext : ORIGINAL_EXTENSIONS) {
+            String original = base + "." + ext;
+            try {
+                if (storage.exists(original)) {
+                    originals.put(base, original);
+                    request(original);
+                    return original;
+                }
+            } catch (IOException e) {
+                return null; // the store is unreachable; so is the original
+            }
+        }
+        return null;
+    }
+
+    void request(String originalName) {
+        if (!pending.add(originalName)) return;
+        try {
+            worker.execute(() -> {
+                try {
+                    generate(originalName);
+                } finally {
+                    pending.remove(originalName);
+                }
+            });
+        } catch (RejectedExecutionException full) {
+            // Served from the original meanwhile; the next miss asks again.
+            pending.remove(originalName);
+        }
+    }
+
+    void generate(String originalName) {
+        try {
+            BufferedImage image = decode(originalName, Size.LARGE.width());
+            if (image == null) return;
+            // Largest first, each scaled from the one before: cheaper and smoother.
+            for (Size size : new Size[]{Size.LARGE, Size.MEDIUM, Size.THUMB}) {
+                image = scaleToWidth(image, size.width());
+                writeJpeg(image, ImageNames.variantName(originalName, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not make variants of {}: {}", originalName, e.toString());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /** Decodes at no more than about twice {@code targetWidth}, or null if unreadable. */
+    private BufferedImage decode(String name, int targetWidth) throws IOException {
+        if (!storage.exists(name)) return null;
+        Path local = storage.localFile(name);
+        // A local file is read in place; a remote one streams (ImageIO buffers it as it goes).
+        try (InputStream remote = local == null ? storage.open(name) : null;
+             ImageInputStream in = ImageIO.createImageInputStream(local == null ? remote : local.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    log.warn("Not making variants of {}: {}x{} is too large", name, width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (targetWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** Never upscales. Always returns an opaque RGB image, since JPEG has no alpha. */
+    private static BufferedImage scaleToWidth(BufferedImage image, int maxWidth) {
+        BufferedImage current = image;
+        // Halve first: a single big bilinear step skips pixels and looks jagged.
+        while (current.getWidth() / 2 >= maxWidth) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        if (current.getWidth() > maxWidth) {
+            int height = Math.max(1, Math.round(current.getHeight() * (maxWidth / (float) current.getWidth())));
+            current = draw(current, maxWidth, height);
+        }
+        return current.getType() == BufferedImage.TYPE_INT_RGB
+                ? current : draw(current, current.getWidth(), current.getHeight());
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE); // what transparent PNG/GIF areas become
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    /** Written to a staging file and then handed to the store, like uploads themselves. */
+    private void writeJpeg(BufferedImage image, String name) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path partial = storage.newStagingFile("variant-");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(partial.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            storage.putDerived(name, partial);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.OrderStatus;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos.OrderView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Each restaurant's open orders, held in memory, for the kitchen screen.
+ *
+ * The dashboard polls this all evening, and reloading the whole order history
+ * each time to find the few open ones kept a pooled connection busy exactly
+ * when orders were arriving. At startup every restaurant with open orders has
+ * its queue loaded in one go; any other is loaded the first time it is asked
+ * for. From then on every committed place, advance and cancel is applied to it
+ * (they all announce an OrderChanged), and orders leave it as soon as their
+ * status is terminal. Reads touch no database at all.
+ *
+ * Like the STOMP broker, this lives in one JVM: it sees the changes this
+ * instance commits, which is every change while there is one instance.
+ */
+@Component
+public class KitchenQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(KitchenQueue.class);
+
+    private static final Comparator<OrderView> OLDEST_FIRST =
+            Comparator.comparing(OrderView::placedAt).thenComparing(OrderView::id);
+
+    private final OrderService orders;
+    private final Map<Long, Queue> byRestaurant = new ConcurrentHashMap<>();
+    /** An owner's restaurant never changes, so this saves the lookup on every poll. */
+    private final Cache<Long, Long> restaurantOfOwner = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public KitchenQueue(OrderService orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * Seeds the queues of every restaurant with open orders, so the first
+     * dashboard read after a restart is answered from memory too. The queues
+     * are registered before their orders are read, as in {@link #queueFor}. A
+     * restaurant whose first open order commits in between is not registered
+     * and loads on its first read instead. If this fails, every queue does.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        long started = System.nanoTime();
+        try {
+            Map<Long, Queue> registered = new HashMap<>();
+            orders.ownersOfBusyRestaurants().forEach((restaurantId, ownerId) -> {
+                restaurantOfOwner.put(ownerId, restaurantId);
+                registered.put(restaurantId, byRestaurant.computeIfAbsent(restaurantId, id -> new Queue()));
+            });
+            Map<Long, List<OrderView>> open = orders.allActive().stream()
+                    .map(OrderView::of)
+                    .collect(Collectors.groupingBy(OrderView::restaurantId));
+            registered.forEach((restaurantId, queue) -> {
+                synchronized (queue) {
+                    if (!queue.loaded) queue.load(open.getOrDefault(restaurantId, List.of()));
+                }
+            });
+            log.info("Kitchen queues loaded: {} restaurants in {} ms",
+                    registered.size(), (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Could not preload kitchen queues; each will load on its first read", e);
+        }
+    }
+
+    /** The owner's open orders, oldest first. */
+    public List<OrderView> forOwner(User owner) {
+        Long restaurantId = restaurantOfOwner.get(owner.getId(), id -> orders.ownedRestaurant(owner).getId());
+        return queueFor(restaurantId).snapshot;
+    }
+
+    /**
+     * After commit only, so a rolled-back change never shows. A restaurant
+     * nobody has looked at yet is skipped: its first read loads what was committed.
+     */
+    @TransactionalEventListener
+    public void onChange(OrderService.OrderChanged change) {
+        Queue queue = byRestaurant.get(change.view().restaurantId());
+        if (queue != null) queue.apply(change.view());
+    }
+
+    private Queue queueFor(Long restaurantId) {
+        Queue queue = byRestaurant.computeIfAbsent(restaurantId, id -> new Queue());
+        if (!queue.loaded) {
+            // Registered before loading, so a change committed during the load
+            // waits for it and is applied on top instead of being lost.
+            synchronized (queue) {
+                if (!queue.loaded) {
+                    try {
+                        queue.load(orders.activeFor(restaurantId).stream().map(OrderView::of).toList());
+                    } catch (RuntimeException e) {
+                        byRestaurant.remove(restaurantId, queue);
+                        throw e;
+                    }
+                }
+            }
+        }
+        return queue;
+    }
+
+    /** One restaurant's open orders. Writers lock; readers take the last published list. */
+    private static final class Queue {
+
+        /** Enough to outlast any change still in flight for an order that just closed. */
+        private static final int CLOSED_REMEMBERED = 256;
+
+        private final Map<Long, OrderView> open = new HashMap<>();
+        /**
+         * Orders that reached a terminal status. Nothing follows a terminal
+         * status, so a change for one of these that arrives late is stale.
+         */
+        private final Map<Long, Boolean> closed = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > CLOSED_REMEMBERED;
+            }
+        };
+        private volatile boolean loaded;
+        private volatile List<OrderView> snapshot = List.of();
+
+        synchronized void load(List<OrderView> views) {
+            views.forEach(this::put);
+            loaded = true;
+            publish();
+        }
+
+        synchronized void apply(OrderView view) {
+            put(view);
+            publish();
+        }
+
+        private void put(OrderView view) {
+            if (closed.containsKey(view.id())) return;
+            OrderView held = open.get(view.id());
+            // Two changes to one order can finish committing in either order; the newer one wins.
+            if (held != null && held.updatedAt().isAfter(view.updatedAt())) return;
+            if (OrderStatus.valueOf(view.status()).isTerminal()) {
+                open.remove(view.id());
+                closed.put(view.id(), Boolean.TRUE);
+            } else {
+                open.put(view.id(), view);
+            }
+        }
+
+        private void publish() {
+            snapshot = open.values().stream().sorted(OLDEST_FIRST).toList();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.backend.Yummybunch.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * Uploads in a directory on this machine ({@code file.upload-dir}). The
+ * default. In production that directory must be a mounted volume.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${file.upload-dir:uploads}") String dir) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create upload directory " + root, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return Files.isRegularFile(root.resolve(name));
+    }
+
+    /** A rename, since staging is inside the same directory; then the rename itself is synced. */
+    @Override
+    public void put(String name, Path staged, String contentType) throws IOException {
+        Files.move(staged, root.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return Files.newInputStream(root.resolve(name));
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        Files.deleteIfExists(root.resolve(name));
+    }
+
+    @Override
+    public Path localFile(String name) {
+        return root.resolve(name);
+    }
+
+    @Override
+    public DirectRead directRead(String name) {
+        return null;
+    }
+
+    /** Not every platform can open a directory; that is fine. */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(root, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // Best effort.
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.OutboundMail;
+import com.backend.Yummybunch.repo.OutboundMailRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the mail outbox in the background.
+ *
+ * A message is first attempted as soon as the transaction that queued it
+ * commits, and a poller picks up anything due for a retry. Sends run on a
+ * small fixed pool, so a slow SMTP handshake ties up one of these threads
+ * rather than a Tomcat worker and a database connection. The hand-off queue is
+ * bounded; anything it drops is still in the table and the poller gets to it.
+ * With the virtual profile these are virtual threads, which cost nothing
+ * while they wait on SMTP; the pool size still caps concurrent sends.
+ */
+@Service
+@Lazy(false) // has a schedule; see SchedulingConfig
+public class MailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    /** Verification codes expire after 10 minutes; five tries span about four. */
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration FIRST_RETRY = Duration.ofSeconds(15);
+    /** Longer than the SMTP timeouts combined, so a live send is never taken over. */
+    private static final Duration LEASE = Duration.ofMinutes(2);
+    private static final int BATCH = 50;
+
+    private final OutboundMailRepository outbox;
+    private final MailService mail;
+    private final ThreadPoolExecutor workers;
+
+    public MailDispatcher(OutboundMailRepository outbox, MailService mail, Environment env,
+                          @Value("${mail.outbox.concurrency:2}") int concurrency) {
+        this.outbox = outbox;
+        this.mail = mail;
+        ThreadFactory threads = Threading.VIRTUAL.isActive(env)
+                ? new VirtualThreadTaskExecutor("mail-outbox-").getVirtualThreadFactory()
+                : new CustomizableThreadFactory("mail-outbox-");
+        this.workers = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(BATCH * 2), threads, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQueued(MailService.MailQueued queued) {
+        workers.execute(() -> deliver(queued.mailId()));
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-ms:10000}")
+    public void dispatchDue() {
+        for (Long id : outbox.findDueIds(Instant.now(), Limit.of(BATCH))) {
+            workers.execute(() -> deliver(id));
+        }
+    }
+
+    void deliver(Long id) {
+        Instant now = Instant.now();
+        if (outbox.claim(id, now, now.plus(LEASE)) == 0) return; // not due, or another worker has it
+        OutboundMail message = outbox.findById(id).orElse(null);
+        if (message == null) return;
+
+        try {
+            mail.send(message);
+            outbox.markSent(id, Instant.now());
+        } catch (RuntimeException e) {
+            int attempt = message.getAttempts() + 1;
+            boolean giveUp = attempt >= MAX_ATTEMPTS;
+            Instant retryAt = Instant.now().plus(FIRST_RETRY.multipliedBy(1L << (attempt - 1)));
+            outbox.markFailed(id, giveUp ? OutboundMail.Status.FAILED : OutboundMail.Status.PENDING,
+                    retryAt, abbreviate(String.valueOf(e.getMessage())));
+            if (giveUp) {
+                log.error("Giving up on mail {} to {} after {} attempts", id, message.getRecipient(), attempt, e);
+            } else {
+                log.warn("Mail {} to {} failed (attempt {}), retrying at {}: {}",
+                        id, message.getRecipient(), attempt, retryAt, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+
+    private static String abbreviate(String s) {
+        return s.length() <= 1000 ? s : s.substring(0, 1000);
+    }
+}
@@ -1,8 +1,11 @@
 package com.backend.Yummybunch.service;
 
+import com.backend.Yummybunch.domain.OutboundMail;
+import com.backend.Yummybunch.repo.OutboundMailRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
@@ -14,10 +17,15 @@ public class MailService {
 
     private final JavaMailSender sender;
     private final String from;
+    private final OutboundMailRepository outbox;
+    private final ApplicationEventPublisher events;
 
-    public MailService(JavaMailSender sender, @Value("${spring.mail.username:}") String from) {
+    public MailService(JavaMailSender sender, @Value("${spring.mail.username:}") String from,
+                       OutboundMailRepository outbox, ApplicationEventPublisher events) {
         this.sender = sender;
         this.from = from;
+        this.outbox = outbox;
+        this.events = events;
     }
 
     /** True when SMTP credentials have actually been configured. */
@@ -26,23 +34,24 @@ public class MailService {
     }
 
     /**
-     * Sends the confirmation code.
+     * Queues the confirmation code in the mail outbox, as part of the caller's
+     * transaction. {@link MailDispatcher} sends it once that commits, so the
+     * request never waits on the mail server.
      *
      * @throws MailNotConfiguredException when no SMTP credentials are present, so the
      *         caller can surface a clear error instead of silently "succeeding".
      */
-    public void sendVerificationCode(String to, String name, String code) {
+    public void queueVerificationCode(String to, String name, String code) {
         if (!isConfigured()) {
             throw new MailNotConfiguredException(
                     "Email sending is not configured. Set spring.mail.username and "
                     + "spring.mail.password in application.properties.");
         }
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setFrom(from);
-        message.setTo(to);
-        message.setSubject("Your Yummybunch verification code");
-        message.setText("""
+        OutboundMail mail = new OutboundMail();
+        mail.setRecipient(to);
+        mail.setSubject("Your Yummybunch verification code");
+        mail.setBody("""
                 Hi %s,
 
                 Your Yummybunch verification code is:
@@ -53,11 +62,25 @@ public class MailService {
 
                 — Yummybunch
                 """.formatted(name == null ? "there" : name, code));
+        outbox.save(mail);
+        events.publishEvent(new MailQueued(mail.getId()));
+    }
+
+    /** Talks to the mail server; only the dispatcher calls this, outside any transaction. */
+    void send(OutboundMail mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(mail.getRecipient());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getBody());
 
         sender.send(message);
-        log.info("Verification code sent to {}", to);
+        log.info("Mail {} sent to {}", mail.getId(), mail.getRecipient());
     }
 
+    /** Published when a message joins the outbox, so it goes out right after commit. */
+    public record MailQueued(Long mailId) {}
+
     public static class MailNotConfiguredException extends RuntimeException {
         public MailNotConfiguredException(String message) {
             super(message);
@@ -0,0 +1,115 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.dto.Dtos.MenuItemRequest;
+import com.backend.Yummybunch.repo.MenuItemRepository;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.web.ApiException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Owner edits to a menu. Each method writes the item and bumps the
+ * restaurant's menu version in one transaction, so no reader ever sees one
+ * without the other, and the catalogue caches are dropped only once both have
+ * committed (RestaurantChanged is handled after commit).
+ */
+@Service
+public class MenuService {
+
+    private final MenuItemRepository menuItems;
+    private final RestaurantRepository restaurants;
+    private final ApplicationEventPublisher events;
+
+    public MenuService(MenuItemRepository menuItems, RestaurantRepository restaurants,
+                       ApplicationEventPublisher events) {
+        this.menuItems = menuItems;
+        this.restaurants = restaurants;
+        this.events = events;
+    }
+
+    /** A menu item of this restaurant, or 404 (also for another restaurant's item). */
+    @Transactional(readOnly = true)
+    public MenuItem owned(Restaurant restaurant, Long itemId) {
+        MenuItem item = menuItems.findById(itemId)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Menu item not found"));
+        if (!item.getRestaurant().getId().equals(restaurant.getId())) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "Menu item not found");
+        }
+        return item;
+    }
+
+    @Transactional
+    public MenuItem add(Restaurant restaurant, MenuItemRequest req) {
+        MenuItem item = new MenuItem();
+        item.setRestaurant(restaurant);
+        applyTo(item, req, true);
+        item = menuItems.save(item);
+        changed(restaurant.getId());
+        return item;
+    }
+
+    @Transactional
+    public MenuItem update(Restaurant restaurant, Long itemId, MenuItemRequest req) {
+        MenuItem item = owned(restaurant, itemId);
+        applyTo(item, req, false);
+        changed(restaurant.getId());
+        return item;
+    }
+
+    /** The item with its new image, and the image it had before, for the caller to let go of. */
+    public record ImageReplaced(MenuItem item, String previous) {}
+
+    @Transactional
+    public ImageReplaced replaceImage(Restaurant restaurant, Long itemId, String stored) {
+        MenuItem item = owned(restaurant, itemId);
+        String previous = item.getImageUrl();
+        item.setImageUrl(stored);
+        changed(restaurant.getId());
+        return new ImageReplaced(item, previous);
+    }
+
+    /** @return the item's image, for the caller to let go of */
+    @Transactional
+    public String delete(Restaurant restaurant, Long itemId) {
+        MenuItem item = owned(restaurant, itemId);
+        menuItems.delete(item);
+        changed(restaurant.getId());
+        return item.getImageUrl();
+    }
+
+    // ---------- helpers ----------
+
+    private void applyTo(MenuItem item, MenuItemRequest req, boolean creating) {
+        if (creating || req.name() != null) {
+            if (req.name() == null || req.name().isBlank()) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "Item name is required");
+            }
+            item.setName(req.name().trim());
+        }
+        if (creating || req.price() != null) {
+            if (req.price() == null || req.price().compareTo(BigDecimal.ZERO) <= 0) {
+                throw new ApiException(HttpStatus.BAD_REQUEST, "Price must be greater than zero");
+            }
+            item.setPrice(req.price());
+        }
+        if (req.description() != null) item.setDescription(req.description());
+        if (req.category() != null) item.setCategory(req.category());
+        if (req.available() != null) item.setAvailable(req.available());
+    }
+
+    /**
+     * The bump also takes the restaurant's row lock until commit, so two
+     * owners' edits to one menu commit one after the other.
+     */
+    private void changed(Long restaurantId) {
+        restaurants.bumpMenuVersion(restaurantId, Instant.now());
+        events.publishEvent(new RestaurantChanged(restaurantId));
+    }
+}
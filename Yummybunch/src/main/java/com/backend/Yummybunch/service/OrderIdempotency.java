@@ -0,0 +1,138 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.IdempotencyKey;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos.OrderView;
+import com.backend.Yummybunch.dto.Dtos.PlaceOrderRequest;
+import com.backend.Yummybunch.repo.IdempotencyKeyRepository;
+import com.backend.Yummybunch.web.ApiException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Makes placing an order safe to retry. A client that lost the response (a
+ * dropped connection, a timeout on a phone) sends the same Idempotency-Key
+ * again and gets the order it already placed, rather than a second one.
+ *
+ * The key is written in the same transaction as the order, so there is never
+ * a key without its order or the other way round. Two copies of one request
+ * arriving together both try to insert it; the primary key lets exactly one
+ * commit, and the loser rolls back and answers with the winner's order.
+ *
+ * Recent answers are also kept in memory, so the usual retry, a few seconds
+ * after the first attempt, is answered without touching the database at all.
+ * After a restart a retry costs one lookup by key plus a read of the order.
+ */
+@Service
+@Lazy(false) // has a schedule; see SchedulingConfig
+public class OrderIdempotency {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdempotency.class);
+
+    /** Clients use UUIDs; this leaves plenty of room without letting anyone send a novel. */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final OrderService orders;
+    private final IdempotencyKeyRepository keys;
+    private final TransactionTemplate transactions;
+    private final Duration ttl;
+    private final Cache<String, Placed> recent;
+
+    public OrderIdempotency(OrderService orders, IdempotencyKeyRepository keys,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${orders.idempotency.ttl:24h}") Duration ttl) {
+        this.orders = orders;
+        this.keys = keys;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.recent = Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(ttl).build();
+    }
+
+    /** Places the order, or, for a key seen before, returns the order it placed. */
+    public OrderView place(User customer, String idempotencyKey, PlaceOrderRequest req) {
+        if (idempotencyKey == null) return OrderView.of(orders.place(customer, req));
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String keyHash = sha256(customer.getId() + ":" + idempotencyKey);
+        // Records print every field, nested lines included, so this covers the whole request.
+        String requestHash = sha256(String.valueOf(req));
+
+        Placed earlier = recent.getIfPresent(keyHash);
+        if (earlier == null) earlier = stored(customer, keyHash);
+        if (earlier != null) return replay(earlier, requestHash);
+
+        try {
+            OrderView view = transactions.execute(tx -> {
+                OrderView placed = OrderView.of(orders.place(customer, req));
+                keys.saveAndFlush(new IdempotencyKey(keyHash, requestHash, placed.id(), Instant.now()));
+                return placed;
+            });
+            recent.put(keyHash, new Placed(requestHash, view));
+            return view;
+        } catch (DataAccessException e) {
+            // Most likely the same request racing this one, which committed first
+            // and took the key; this order was rolled back. Answer with that one.
+            Placed winner = stored(customer, keyHash);
+            if (winner == null) throw e;
+            return replay(winner, requestHash);
+        }
+    }
+
+    /** Keys outlive any sensible retry; after that they only take up space. */
+    @Scheduled(fixedDelayString = "${orders.idempotency.sweep-ms:3600000}")
+    public void sweep() {
+        int removed = keys.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (removed > 0) log.debug("Removed {} expired idempotency keys", removed);
+    }
+
+    // ---------- helpers ----------
+
+    private record Placed(String requestHash, OrderView view) {}
+
+    private Placed stored(User customer, String keyHash) {
+        return keys.findById(keyHash)
+                .map(k -> new Placed(k.getRequestHash(), OrderView.of(orders.readable(customer, k.getOrderId()))))
+                .map(placed -> {
+                    recent.put(keyHash, placed);
+                    return placed;
+                })
+                .orElse(null);
+    }
+
+    private static OrderView replay(Placed earlier, String requestHash) {
+        if (!earlier.requestHash().equals(requestHash)) {
+            throw new ApiException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "This Idempotency-Key was already used for a different order");
+        }
+        return earlier.view();
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is missing from this JVM", e);
+        }
+    }
+}
@@ -6,25 +6,49 @@ import com.backend.Yummybunch.repo.MenuItemRepository;
 import com.backend.Yummybunch.repo.OrderRepository;
 import com.backend.Yummybunch.repo.RestaurantRepository;
 import com.backend.Yummybunch.web.ApiException;
+import com.backend.Yummybunch.web.PageCursor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    /**
+     * How far a sync cursor trails the clock. updatedAt is stamped before the
+     * transaction commits, so an order can become visible with a timestamp
+     * slightly older than a cursor already handed out. Re-sending the last few
+     * seconds is harmless — clients merge by id — whereas skipping is not.
+     */
+    private static final Duration CURSOR_OVERLAP = Duration.ofSeconds(5);
+    /** The most orders.total, a numeric(10, 2), can hold. */
+    static final BigDecimal MAX_TOTAL = new BigDecimal("99999999.99");
+
     private final OrderRepository orders;
     private final RestaurantRepository restaurants;
     private final MenuItemRepository menuItems;
+    private final ApplicationEventPublisher events;
 
     public OrderService(OrderRepository orders, RestaurantRepository restaurants,
-                        MenuItemRepository menuItems) {
+                        MenuItemRepository menuItems, ApplicationEventPublisher events) {
         this.orders = orders;
         this.restaurants = restaurants;
         this.menuItems = menuItems;
+        this.events = events;
     }
 
     @Transactional
@@ -55,18 +79,29 @@ public class OrderService {
         order.setDeliveryAddress(req.deliveryAddress().trim());
         order.setNotes(req.notes());
 
+        // The same dish twice in a cart becomes one line; cart order is kept.
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (Dtos.PlaceOrderRequest.LineRequest line : req.items()) {
             if (line.menuItemId() == null || line.quantity() == null || line.quantity() < 1) {
                 throw new ApiException(HttpStatus.BAD_REQUEST, "Every line needs an item and a quantity of at least 1");
             }
-            MenuItem item = menuItems.findById(line.menuItemId())
-                    .orElseThrow(() -> new ApiException(HttpStatus.BAD_REQUEST,
-                            "One of the items is no longer on the menu"));
-
-            // Guard against a cart assembled from another restaurant's menu.
-            if (!item.getRestaurant().getId().equals(restaurant.getId())) {
-                throw new ApiException(HttpStatus.BAD_REQUEST,
-                        "\"" + item.getName() + "\" does not belong to " + restaurant.getName());
+            try {
+                quantities.merge(line.menuItemId(), line.quantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw tooLarge();
+            }
+        }
+
+        // One query for the whole cart. Scoping it to the restaurant is also the
+        // guard against a cart assembled from another restaurant's menu.
+        Map<Long, MenuItem> found = menuItems.findByRestaurantIdAndIdIn(restaurant.getId(), quantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(MenuItem::getId, Function.identity()));
+
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            MenuItem item = found.get(line.getKey());
+            if (item == null) {
+                throw missingItem(line.getKey(), restaurant);
             }
             if (!item.isAvailable()) {
                 throw new ApiException(HttpStatus.CONFLICT,
@@ -77,17 +112,34 @@ public class OrderService {
             oi.setMenuItemId(item.getId());
             oi.setItemName(item.getName());   // snapshot
             oi.setUnitPrice(item.getPrice()); // snapshot
-            oi.setQuantity(line.quantity());
+            oi.setQuantity(line.getValue());
             order.addItem(oi);
         }
 
         // Price is computed here, never taken from the client.
-        order.setTotal(order.computeTotal());
+        BigDecimal total = order.computeTotal();
+        if (total.compareTo(MAX_TOTAL) > 0) {
+            throw tooLarge();
+        }
+        order.setTotal(total);
         order.setStatus(OrderStatus.PLACED);
         order.recordEvent(OrderStatus.PLACED, "Order placed");
         order.setUpdatedAt(Instant.now());
 
-        return hydrate(orders.save(order));
+        return announce(hydrate(orders.save(order)));
+    }
+
+    private static ApiException tooLarge() {
+        return new ApiException(HttpStatus.BAD_REQUEST, "That order is too large to place");
+    }
+
+    /** Only reached when a cart is already being rejected, so the extra lookup is fine. */
+    private ApiException missingItem(Long menuItemId, Restaurant restaurant) {
+        return menuItems.findById(menuItemId)
+                .map(item -> new ApiException(HttpStatus.BAD_REQUEST,
+                        "\"" + item.getName() + "\" does not belong to " + restaurant.getName()))
+                .orElseGet(() -> new ApiException(HttpStatus.BAD_REQUEST,
+                        "One of the items is no longer on the menu"));
     }
 
     @Transactional(readOnly = true)
@@ -101,6 +153,66 @@ public class OrderService {
         return hydrateAll(orders.findByRestaurantIdOrderByPlacedAtDesc(restaurant.getId()));
     }
 
+    /** A restaurant's open orders, oldest first. Seeds {@link KitchenQueue}. */
+    @Transactional(readOnly = true)
+    public List<Order> activeFor(Long restaurantId) {
+        return hydrateAll(orders.findByRestaurantIdAndStatusInOrderByPlacedAtAsc(restaurantId, OrderStatus.active()));
+    }
+
+    /** Every open order, oldest first. Seeds {@link KitchenQueue} at startup. */
+    @Transactional(readOnly = true)
+    public List<Order> allActive() {
+        return hydrateAll(orders.findByStatusInOrderByPlacedAtAsc(OrderStatus.active()));
+    }
+
+    /** Owner id by restaurant id, for every restaurant with an open order. */
+    @Transactional(readOnly = true)
+    public Map<Long, Long> ownersOfBusyRestaurants() {
+        Map<Long, Long> owners = new HashMap<>();
+        for (Object[] row : orders.findRestaurantAndOwnerIdsWithStatusIn(OrderStatus.active())) {
+            owners.put((Long) row[0], (Long) row[1]);
+        }
+        return owners;
+    }
+
+    /** One page of the customer's orders, newest first; a null cursor is the first page. */
+    @Transactional(readOnly = true)
+    public OrderPage pageForCustomer(User customer, PageCursor after, int size) {
+        Limit limit = Limit.of(size + 1);
+        return toPage(after == null
+                ? orders.findByCustomerIdOrderByPlacedAtDescIdDesc(customer.getId(), limit)
+                : orders.pageForCustomer(customer.getId(), parsePlacedAt(after), after.id(), limit), size);
+    }
+
+    /** One page of the owner's incoming orders, newest first; a null cursor is the first page. */
+    @Transactional(readOnly = true)
+    public OrderPage pageForOwner(User owner, PageCursor after, int size) {
+        Restaurant restaurant = ownedRestaurant(owner);
+        Limit limit = Limit.of(size + 1);
+        return toPage(after == null
+                ? orders.findByRestaurantIdOrderByPlacedAtDescIdDesc(restaurant.getId(), limit)
+                : orders.pageForRestaurant(restaurant.getId(), parsePlacedAt(after), after.id(), limit), size);
+    }
+
+    /** Orders of this customer changed after {@code rawCursor}; blank means "everything". */
+    @Transactional(readOnly = true)
+    public Changes changesForCustomer(User customer, String rawCursor) {
+        Instant since = parseCursor(rawCursor);
+        Instant next = nextCursor();
+        return new Changes(hydrateAll(orders.findByCustomerIdAndUpdatedAtAfterOrderByUpdatedAtAsc(
+                customer.getId(), since)), next);
+    }
+
+    /** Orders of the owner's restaurant changed after {@code rawCursor}; blank means "everything". */
+    @Transactional(readOnly = true)
+    public Changes changesForOwner(User owner, String rawCursor) {
+        Restaurant restaurant = ownedRestaurant(owner);
+        Instant since = parseCursor(rawCursor);
+        Instant next = nextCursor();
+        return new Changes(hydrateAll(orders.findByRestaurantIdAndUpdatedAtAfterOrderByUpdatedAtAsc(
+                restaurant.getId(), since)), next);
+    }
+
     @Transactional(readOnly = true)
     public Order readable(User user, Long orderId) {
         Order order = orders.findById(orderId)
@@ -117,16 +229,20 @@ public class OrderService {
         return hydrate(order);
     }
 
-    /** Restaurant-driven transition, validated against {@link OrderStatus}. */
+    /**
+     * Restaurant-driven transition, validated against {@link OrderStatus}.
+     *
+     * The move is one conditional UPDATE, not read-check-write: a customer
+     * cancelling while the kitchen accepts would otherwise both pass their
+     * checks, and one change would silently overwrite the other. Whichever
+     * reaches the row second finds the status already moved and gets a 409.
+     * The UPDATE's row lock is held until this transaction commits, so it
+     * also covers the reload and event insert in recordMove: a competing
+     * move waits on the lock, then finds the status changed and matches nothing.
+     */
     @Transactional
     public Order advance(User owner, Long orderId, String rawStatus, String note) {
         Restaurant restaurant = ownedRestaurant(owner);
-        Order order = orders.findById(orderId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Order not found"));
-
-        if (!order.getRestaurant().getId().equals(restaurant.getId())) {
-            throw new ApiException(HttpStatus.NOT_FOUND, "Order not found");
-        }
 
         OrderStatus next;
         try {
@@ -135,43 +251,37 @@ public class OrderService {
             throw new ApiException(HttpStatus.BAD_REQUEST, "Unknown status \"" + rawStatus + "\"");
         }
 
-        if (!order.getStatus().canRestaurantMoveTo(next)) {
-            throw new ApiException(HttpStatus.CONFLICT,
-                    "Cannot move an order from " + order.getStatus() + " to " + next);
-        }
         if (next == OrderStatus.REJECTED && (note == null || note.isBlank())) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "Give a reason when rejecting an order");
         }
 
-        order.setStatus(next);
-        if (next == OrderStatus.REJECTED) {
-            order.setRejectionReason(note);
+        List<OrderStatus> from = statusesWhere(s -> s.canRestaurantMoveTo(next));
+        // Only a rejection carries a reason, and nothing moves on from a rejection.
+        String reason = next == OrderStatus.REJECTED ? note : null;
+        if (from.isEmpty()
+                || orders.moveForRestaurant(orderId, restaurant.getId(), from, next, reason, Instant.now()) == 0) {
+            throw whyNotMoved(orderId, o -> o.getRestaurant().getId().equals(restaurant.getId()),
+                    current -> current == next
+                            ? "This order is already " + next
+                            : "Cannot move an order from " + current + " to " + next);
         }
-        order.recordEvent(next, note);
-        order.setUpdatedAt(Instant.now());
-        return hydrate(orders.save(order));
+        return recordMove(orderId, next, note);
     }
 
-    /** Customers may only pull out before the restaurant has acknowledged the order. */
+    /**
+     * Customers may only pull out before the restaurant has acknowledged the
+     * order. A conditional UPDATE, like {@link #advance}.
+     */
     @Transactional
     public Order cancel(User customer, Long orderId) {
-        Order order = orders.findById(orderId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Order not found"));
-
-        if (!order.getCustomer().getId().equals(customer.getId())) {
-            throw new ApiException(HttpStatus.NOT_FOUND, "Order not found");
-        }
-        if (!order.getStatus().canCustomerCancel()) {
-            throw new ApiException(HttpStatus.CONFLICT,
-                    order.getStatus() == OrderStatus.PLACED
-                            ? "This order can no longer be cancelled"
+        List<OrderStatus> from = statusesWhere(OrderStatus::canCustomerCancel);
+        if (orders.moveForCustomer(orderId, customer.getId(), from, OrderStatus.CANCELLED, Instant.now()) == 0) {
+            throw whyNotMoved(orderId, o -> o.getCustomer().getId().equals(customer.getId()),
+                    current -> current == OrderStatus.CANCELLED
+                            ? "This order is already cancelled"
                             : "The restaurant has already started this order, so it cannot be cancelled");
         }
-
-        order.setStatus(OrderStatus.CANCELLED);
-        order.recordEvent(OrderStatus.CANCELLED, "Cancelled by customer");
-        order.setUpdatedAt(Instant.now());
-        return hydrate(orders.save(order));
+        return recordMove(orderId, OrderStatus.CANCELLED, "Cancelled by customer");
     }
 
     public Restaurant ownedRestaurant(User owner) {
@@ -180,10 +290,38 @@ public class OrderService {
                         "No restaurant is linked to this account"));
     }
 
+    /**
+     * Loads an order just moved by a conditional UPDATE (nothing of it was read
+     * before, so this is its new state) and adds the timeline entry.
+     */
+    private Order recordMove(Long orderId, OrderStatus next, String note) {
+        Order order = hydrate(orders.findById(orderId).orElseThrow());
+        order.recordEvent(next, note);
+        return announce(order);
+    }
+
+    /**
+     * Only reached when a move matched no row, to say why: the order is not
+     * there (or not the caller's, which looks the same), or its status has
+     * already moved on, possibly a moment ago by someone else.
+     */
+    private ApiException whyNotMoved(Long orderId, Predicate<Order> visible, Function<OrderStatus, String> conflict) {
+        return orders.findById(orderId).filter(visible)
+                .map(o -> new ApiException(HttpStatus.CONFLICT, conflict.apply(o.getStatus())))
+                .orElseGet(() -> new ApiException(HttpStatus.NOT_FOUND, "Order not found"));
+    }
+
+    private static List<OrderStatus> statusesWhere(Predicate<OrderStatus> test) {
+        return java.util.Arrays.stream(OrderStatus.values()).filter(test).toList();
+    }
+
     /**
      * Touches everything OrderView reads while the session is still open.
      * With spring.jpa.open-in-view=false (the safe default), any lazy field left
      * untouched here would blow up during JSON serialisation instead.
+     *
+     * Restaurant and customer are already fetched by the repository's entity
+     * graph, and the first items/events touch batch-loads the rest of the list.
      */
     private Order hydrate(Order order) {
         order.getRestaurant().getName();
@@ -197,4 +335,51 @@ public class OrderService {
         list.forEach(this::hydrate);
         return list;
     }
+
+    /**
+     * Queues a live update for {@link OrderUpdatePublisher}. The view is built
+     * now, inside the session, and only sent once the transaction commits.
+     */
+    private Order announce(Order order) {
+        events.publishEvent(new OrderChanged(order.getCustomer().getId(), Dtos.OrderView.of(order)));
+        return order;
+    }
+
+    /** One row beyond the page was fetched; its presence is what says "there is more". */
+    private OrderPage toPage(List<Order> rows, int size) {
+        if (rows.size() <= size) return new OrderPage(hydrateAll(rows), null);
+        List<Order> page = hydrateAll(rows.subList(0, size));
+        Order last = page.get(size - 1);
+        return new OrderPage(page, new PageCursor(last.getPlacedAt().toString(), last.getId()));
+    }
+
+    private static Instant parsePlacedAt(PageCursor cursor) {
+        try {
+            return Instant.parse(cursor.key());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+    }
+
+    private static Instant parseCursor(String raw) {
+        if (raw == null || raw.isBlank()) return Instant.EPOCH;
+        try {
+            return Instant.parse(raw.trim());
+        } catch (DateTimeParseException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Invalid sync cursor \"" + raw + "\"");
+        }
+    }
+
+    /** Taken before the query runs, so nothing committed during it can fall behind the cursor. */
+    private static Instant nextCursor() {
+        return Instant.now().minus(CURSOR_OVERLAP);
+    }
+
+    public record OrderChanged(Long customerId, Dtos.OrderView view) {}
+
+    /** Orders changed since a cursor, and the cursor to send next time. */
+    public record Changes(List<Order> orders, Instant cursor) {}
+
+    /** One page of orders; {@code next} is null on the last page. */
+    public record OrderPage(List<Order> orders, PageCursor next) {}
 }
@@ -0,0 +1,36 @@
+package com.backend.Yummybunch.service;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pushes every order change to the customer who placed it and to the
+ * restaurant that received it.
+ *
+ * Runs only after the transaction commits, so a client is never told about a
+ * status that was then rolled back.
+ */
+@Component
+public class OrderUpdatePublisher {
+
+    private final SimpMessagingTemplate broker;
+
+    public OrderUpdatePublisher(SimpMessagingTemplate broker) {
+        this.broker = broker;
+    }
+
+    @TransactionalEventListener
+    public void publish(OrderService.OrderChanged change) {
+        broker.convertAndSend(customerTopic(change.customerId()), change.view());
+        broker.convertAndSend(restaurantTopic(change.view().restaurantId()), change.view());
+    }
+
+    public static String customerTopic(Long customerId) {
+        return "/topic/customers/" + customerId + "/orders";
+    }
+
+    public static String restaurantTopic(Long restaurantId) {
+        return "/topic/restaurants/" + restaurantId + "/orders";
+    }
+}
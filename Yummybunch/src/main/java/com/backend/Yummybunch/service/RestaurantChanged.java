@@ -0,0 +1,7 @@
+package com.backend.Yummybunch.service;
+
+/**
+ * Published whenever a restaurant's public catalogue data — its profile, cover
+ * or menu — changes, or the restaurant is created or removed.
+ */
+public record RestaurantChanged(Long restaurantId) {}
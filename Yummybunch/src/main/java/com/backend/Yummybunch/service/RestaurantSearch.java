@@ -0,0 +1,157 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.repo.MenuItemRepository;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.web.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Free-text restaurant search, served from an in-memory {@link TextIndex} over
+ * each restaurant's name, cuisine and address and its available menu items.
+ *
+ * The SQL it replaces matched with LIKE '%q%', which no index can serve, so
+ * every keystroke in the browse box scanned the whole table. The index is built
+ * once at startup and then kept current one restaurant at a time from
+ * {@link RestaurantChanged} events. Until the first build finishes, searches
+ * fall back to the SQL query, so they are never wrong, only slower.
+ */
+@Service
+public class RestaurantSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(RestaurantSearch.class);
+
+    private static final float NAME = 3.0f;
+    private static final float CUISINE = 2.0f;
+    private static final float DISH = 1.5f;
+    private static final float ADDRESS = 1.0f;
+    private static final float DESCRIPTION = 0.5f;
+
+    private final RestaurantRepository restaurants;
+    private final MenuItemRepository menuItems;
+    private final TextIndex index = new TextIndex();
+
+    private volatile boolean ready;
+    /** Restaurants changed while the initial build was running; re-read once it is done. */
+    private final Set<Long> changedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    public RestaurantSearch(RestaurantRepository restaurants, MenuItemRepository menuItems) {
+        this.restaurants = restaurants;
+        this.menuItems = menuItems;
+    }
+
+    /** Restaurants matching {@code q}, most relevant first; a blank query lists all by name. */
+    public List<Restaurant> find(String q, String cuisine) {
+        if (q == null || q.isBlank() || !ready) {
+            return restaurants.search(q, cuisine);
+        }
+        return load(index.search(q, cuisine).stream().map(TextIndex.Hit::id).toList());
+    }
+
+    /**
+     * Up to {@code limit} matches in (name, id) order, starting after the cursor.
+     * Relevance cannot give a stable keyset, so pages of a search are ordered by
+     * name like the unfiltered catalogue.
+     */
+    public List<Restaurant> findPage(String q, String cuisine, PageCursor after, int limit) {
+        if (q == null || q.isBlank() || !ready) {
+            return after == null
+                    ? restaurants.searchFirstPage(q, cuisine, Limit.of(limit))
+                    : restaurants.searchPage(q, cuisine, after.key(), after.id(), Limit.of(limit));
+        }
+        Comparator<TextIndex.Hit> byName = Comparator.comparing(TextIndex.Hit::sortKey)
+                .thenComparingLong(TextIndex.Hit::id);
+        TextIndex.Hit from = after == null ? null : new TextIndex.Hit(after.id(), after.key(), 0);
+        return load(index.search(q, cuisine).stream()
+                .filter(h -> from == null || byName.compare(h, from) > 0)
+                .sorted(byName)
+                .limit(limit)
+                .map(TextIndex.Hit::id)
+                .toList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        Map<Long, List<MenuItem>> menus = menuItems.findAll().stream()
+                .filter(MenuItem::isAvailable)
+                // getId() on the lazy restaurant reads the foreign key; no extra query.
+                .collect(Collectors.groupingBy(m -> m.getRestaurant().getId()));
+        index.clear();
+        for (Restaurant r : restaurants.findAll()) {
+            put(r, menus.getOrDefault(r.getId(), List.of()));
+        }
+        ready = true;
+        drainChangedDuringBuild();
+
+        log.info("Search index built: {} restaurants in {} ms",
+                index.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** Runs after commit, or straight away when the change was made outside a transaction. */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onChange(RestaurantChanged change) {
+        if (!ready) {
+            changedDuringBuild.add(change.restaurantId());
+            // The build may have finished and drained between the check and the add;
+            // if so nobody else will pick this id up.
+            if (ready) drainChangedDuringBuild();
+            return;
+        }
+        reindex(change.restaurantId());
+    }
+
+    /**
+     * Takes ids out one at a time instead of iterating and clearing, so an id added
+     * mid-drain is either removed and reindexed here or left for the next drain.
+     */
+    private void drainChangedDuringBuild() {
+        for (Long id : changedDuringBuild) {
+            if (changedDuringBuild.remove(id)) reindex(id);
+        }
+    }
+
+    private void reindex(Long id) {
+        restaurants.findById(id).ifPresentOrElse(
+                r -> put(r, menuItems.findByRestaurantIdAndAvailableTrueOrderByCategoryAscNameAsc(id)),
+                () -> index.remove(id));
+    }
+
+    private void put(Restaurant r, List<MenuItem> menu) {
+        List<TextIndex.Field> fields = new ArrayList<>();
+        fields.add(new TextIndex.Field(r.getName(), NAME));
+        fields.add(new TextIndex.Field(r.getCuisine(), CUISINE));
+        fields.add(new TextIndex.Field(r.getAddress(), ADDRESS));
+        fields.add(new TextIndex.Field(r.getDescription(), DESCRIPTION));
+        for (MenuItem m : menu) {
+            fields.add(new TextIndex.Field(m.getName(), DISH));
+            fields.add(new TextIndex.Field(m.getCategory(), DISH));
+            fields.add(new TextIndex.Field(m.getDescription(), DESCRIPTION));
+        }
+        String cuisine = r.getCuisine() == null ? null : r.getCuisine().trim();
+        index.put(r.getId(), r.getName(), cuisine, fields);
+    }
+
+    /** Fetches restaurants by id in one query, keeping the given order. */
+    private List<Restaurant> load(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, Restaurant> byId = restaurants.findAllById(ids).stream()
+                .collect(Collectors.toMap(Restaurant::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+}
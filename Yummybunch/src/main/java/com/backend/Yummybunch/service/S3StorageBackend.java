@@ -0,0 +1,152 @@
+package com.backend.Yummybunch.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Uploads in an S3-compatible bucket (AWS, MinIO, R2, ...), so instances share
+ * one set of images and nothing is lost when a container is replaced.
+ *
+ * Reads never stream through this server: /uploads redirects to the bucket,
+ * either to {@code storage.s3.public-base-url} (a CDN or public bucket; names
+ * never change content, so the redirect can be cached for a day) or to a
+ * presigned URL for a private bucket.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    /** Stored on the object, so a CDN or the bucket itself sends it too. */
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private final S3Client s3;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final String publicBaseUrl;
+    private final Duration urlTtl;
+
+    public S3StorageBackend(@Value("${storage.s3.bucket:}") String bucket,
+                            @Value("${storage.s3.region:us-east-1}") String region,
+                            @Value("${storage.s3.endpoint:}") String endpoint,
+                            @Value("${storage.s3.access-key:}") String accessKey,
+                            @Value("${storage.s3.secret-key:}") String secretKey,
+                            @Value("${storage.s3.public-base-url:}") String publicBaseUrl,
+                            @Value("${storage.s3.url-ttl:1h}") Duration urlTtl) {
+        if (bucket.isBlank()) throw new IllegalStateException("storage.backend=s3 needs storage.s3.bucket");
+        this.bucket = bucket;
+        this.publicBaseUrl = publicBaseUrl.isBlank() ? null : publicBaseUrl.replaceAll("/+$", "");
+        this.urlTtl = urlTtl;
+
+        // Explicit keys for MinIO and friends; otherwise the usual AWS chain (env, profile, instance role).
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        // Path-style addressing whenever an endpoint is given: most stand-ins have no per-bucket DNS.
+        S3Configuration config = S3Configuration.builder().pathStyleAccessEnabled(!endpoint.isBlank()).build();
+
+        var client = S3Client.builder().region(Region.of(region)).credentialsProvider(credentials)
+                .serviceConfiguration(config);
+        var signer = S3Presigner.builder().region(Region.of(region)).credentialsProvider(credentials)
+                .serviceConfiguration(config);
+        if (!endpoint.isBlank()) {
+            client.endpointOverride(URI.create(endpoint));
+            signer.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = client.build();
+        this.presigner = signer.build();
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException {
+        try {
+            s3.headObject(b -> b.bucket(bucket).key(name));
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) return false;
+            throw failed("check", name, e);
+        } catch (SdkException e) {
+            throw failed("check", name, e);
+        }
+    }
+
+    /**
+     * One PUT, streamed from the staged file. Uploads are capped at 5 MB, and
+     * S3 multipart parts must be at least that, so a multipart upload would
+     * only ever have one part.
+     */
+    @Override
+    public void put(String name, Path staged, String contentType) throws IOException {
+        try {
+            s3.putObject(b -> b.bucket(bucket).key(name).contentType(contentType).cacheControl(IMMUTABLE),
+                    RequestBody.fromFile(staged));
+        } catch (SdkException e) {
+            throw failed("store", name, e);
+        }
+        Files.deleteIfExists(staged);
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        try {
+            return s3.getObject(b -> b.bucket(bucket).key(name));
+        } catch (SdkException e) {
+            throw failed("read", name, e);
+        }
+    }
+
+    @Override
+    public void delete(String name) throws IOException {
+        try {
+            s3.deleteObject(b -> b.bucket(bucket).key(name));
+        } catch (SdkException e) {
+            throw failed("delete", name, e);
+        }
+    }
+
+    @Override
+    public Path localFile(String name) {
+        return null;
+    }
+
+    /** Signing is local (no request to S3), so this is cheap enough to do per hit. */
+    @Override
+    public DirectRead directRead(String name) {
+        if (publicBaseUrl != null) {
+            return new DirectRead(URI.create(publicBaseUrl + "/" + name), Duration.ofDays(1));
+        }
+        var signed = presigner.presignGetObject(p -> p.signatureDuration(urlTtl)
+                .getObjectRequest(b -> b.bucket(bucket).key(name)));
+        // Cached for half its life, so a browser never follows a redirect that has just expired.
+        return new DirectRead(URI.create(signed.url().toString()), urlTtl.dividedBy(2));
+    }
+
+    @PreDestroy
+    void close() {
+        presigner.close();
+        s3.close();
+    }
+
+    private static IOException failed(String action, String name, SdkException e) {
+        return new IOException("Could not " + action + " " + name + " in the bucket", e);
+    }
+}
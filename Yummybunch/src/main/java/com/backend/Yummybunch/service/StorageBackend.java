@@ -0,0 +1,43 @@
+package com.backend.Yummybunch.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Where upload bytes live once they are complete: the local disk, or an
+ * S3-compatible bucket so that several instances can share one set of images
+ * and a redeploy cannot lose them. Chosen with {@code storage.backend}.
+ *
+ * {@link StorageService} does everything else (type sniffing, size limits,
+ * content hashing, reference counts) on a file it has staged locally, and
+ * only then hands it over here under its final name.
+ */
+public interface StorageBackend {
+
+    boolean exists(String name) throws IOException;
+
+    /**
+     * Stores a complete, synced file under {@code name}, taking it over: on
+     * success the staged file is gone. On failure it is left for the caller.
+     */
+    void put(String name, Path staged, String contentType) throws IOException;
+
+    InputStream open(String name) throws IOException;
+
+    void delete(String name) throws IOException;
+
+    /** The file on this machine, or null when the bytes live elsewhere. */
+    Path localFile(String name);
+
+    /**
+     * Where a client can fetch the object straight from the store, so the bytes
+     * never pass through this server; null to serve it from {@link #localFile}.
+     */
+    DirectRead directRead(String name);
+
+    /** A URL to send the client to, and how long the redirect may be cached. */
+    record DirectRead(URI url, Duration cacheFor) {}
+}
@@ -1,81 +1,341 @@
 package com.backend.Yummybunch.service;
 
+import com.backend.Yummybunch.domain.ImageNames;
+import com.backend.Yummybunch.domain.UploadBlob;
+import com.backend.Yummybunch.repo.UploadBlobRepository;
 import com.backend.Yummybunch.web.ApiException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Locale;
-import java.util.UUID;
+import java.util.stream.Stream;
 
+/**
+ * Accepts uploads and tracks who uses them. Where the finished bytes live is
+ * up to the {@link StorageBackend}; every upload is first staged in a local
+ * directory, where it is checked, size-limited and hashed.
+ *
+ * Several instances may share one bucket, so the reference counts live in the
+ * database and every decision about the stored object (is it there, put it,
+ * delete it) is made while holding that image's upload_blobs row lock. A lock
+ * in this JVM would not stop another instance deleting an object that an
+ * upload here has just counted on.
+ */
 @Service
 public class StorageService {
 
-    private static final List<String> ALLOWED = List.of("jpg", "jpeg", "png", "webp", "gif");
+    private static final Logger log = LoggerFactory.getLogger(StorageService.class);
+
     private static final long MAX_BYTES = 5L * 1024 * 1024;
+    /** Enough of the file to recognise every format we accept (WEBP needs 12). */
+    private static final int SNIFF_BYTES = 12;
+    private static final long CHUNK = 64 * 1024;
+    /** Hex characters of the SHA-256 kept in a file name: 128 bits, plenty to never collide. */
+    private static final int NAME_HEX = 32;
 
-    private final Path root;
+    /**
+     * Uploads in progress. Inside the upload directory, so the local backend's
+     * final rename never crosses filesystems.
+     */
+    private final Path partials;
+    private final StorageBackend backend;
+    private final ApplicationEventPublisher events;
+    private final UploadBlobRepository blobs;
+    private final TransactionTemplate transactions;
+    /**
+     * Variant names known to be in the store, so serving one costs no round
+     * trip to it. Filled as variants are put or found, emptied as they are
+     * deleted here. Another instance's delete is not seen, hence the expiry;
+     * until then a stale entry only means a 404 for an image nothing uses.
+     */
+    private final Cache<String, Boolean> storedVariants = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
 
-    public StorageService(@Value("${file.upload-dir:uploads}") String dir) {
-        this.root = Paths.get(dir).toAbsolutePath().normalize();
+    public StorageService(@Value("${file.upload-dir:uploads}") String dir, StorageBackend backend,
+                          ApplicationEventPublisher events, UploadBlobRepository blobs,
+                          PlatformTransactionManager transactionManager) {
+        this.backend = backend;
+        this.events = events;
+        this.blobs = blobs;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.partials = Paths.get(dir).toAbsolutePath().normalize().resolve(".partial");
         try {
-            Files.createDirectories(root);
+            Files.createDirectories(partials);
+            // Nothing is in flight at startup; whatever is here was cut off by a crash.
+            try (Stream<Path> leftovers = Files.list(partials)) {
+                for (Path p : (Iterable<Path>) leftovers::iterator) Files.deleteIfExists(p);
+            }
         } catch (IOException e) {
-            throw new IllegalStateException("Could not create upload directory " + root, e);
+            throw new IllegalStateException("Could not create upload directory " + partials, e);
         }
     }
 
-    /**
-     * Stores an image and returns the public path (e.g. {@code /uploads/ab12.jpg}).
-     * The extension is validated and the name is generated, so a caller cannot
-     * choose the path or smuggle in a traversal sequence.
-     */
+    /** Stores a multipart upload; see {@link #storeImage(InputStream, long)}. */
     public String storeImage(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "No file was uploaded");
         }
-        if (file.getSize() > MAX_BYTES) {
-            throw new ApiException(HttpStatus.PAYLOAD_TOO_LARGE, "Images must be 5 MB or smaller");
+        try (InputStream in = file.getInputStream()) {
+            return storeImage(in, file.getSize());
+        } catch (IOException e) {
+            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not save the image");
         }
+    }
 
-        String ext = extensionOf(file.getOriginalFilename());
-        if (!ALLOWED.contains(ext)) {
-            throw new ApiException(HttpStatus.BAD_REQUEST,
-                    "Unsupported image type. Use JPG, PNG, WEBP or GIF.");
+    /**
+     * Stores an image and returns the public path (e.g. {@code /uploads/ab12.jpg}).
+     *
+     * The bytes go from the stream to disk in one pass, in fixed-size chunks,
+     * so memory stays flat whatever the size. The type comes from the file's
+     * magic bytes, not its name, and the name is a hash of the content, so a
+     * caller cannot choose the path or smuggle in a traversal sequence. The file
+     * is synced before the backend gets it, so /uploads never serves a
+     * half-written image.
+     *
+     * Content addressing means the same photo uploaded twice is stored once (the
+     * second upload only adds a reference), and that a name, once served, never
+     * changes meaning, so it can be cached for good. Resized variants follow in
+     * the background (see {@link ImageVariants}).
+     *
+     * @param declaredLength the Content-Length if known, else -1. Oversized
+     *        bodies are refused before reading when it is given, and cut off
+     *        at the limit when it is not.
+     */
+    public String storeImage(InputStream body, long declaredLength) {
+        if (declaredLength > MAX_BYTES) {
+            throw tooLarge();
         }
 
-        String name = UUID.randomUUID() + "." + ext;
+        Path partial = null;
         try {
-            Files.copy(file.getInputStream(), root.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            // Hashed as it streams past, so the name costs no second read of the file.
+            ReadableByteChannel in = Channels.newChannel(new DigestInputStream(body, sha256));
+            ByteBuffer head = ByteBuffer.allocate(SNIFF_BYTES);
+            while (head.hasRemaining() && in.read(head) >= 0) {
+                // keep reading until the header is full or the body ends
+            }
+            head.flip();
+            String ext = sniffExtension(head);
+
+            partial = newStagingFile("upload-");
+            try (FileChannel out = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+                long written = 0;
+                while (head.hasRemaining()) written += out.write(head);
+                long n;
+                // Ask for at most one byte past the limit, so an oversized body is caught without reading on.
+                while ((n = out.transferFrom(in, written, Math.min(CHUNK, MAX_BYTES + 1 - written))) > 0) {
+                    written += n;
+                    if (written > MAX_BYTES) throw tooLarge();
+                }
+                out.force(true);
+            }
+
+            String name = HexFormat.of().formatHex(sha256.digest()).substring(0, NAME_HEX) + "." + ext;
+            boolean placed = place(name, Files.size(partial), partial);
+            if (placed) partial = null;
+            // A duplicate already has its variants (or they are on their way).
+            if (placed) events.publishEvent(new ImageStored(name));
+            return "/uploads/" + name;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is missing from this JVM", e);
         } catch (IOException e) {
             throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Could not save the image");
+        } finally {
+            if (partial != null) {
+                try {
+                    Files.deleteIfExists(partial);
+                } catch (IOException ignored) {
+                    // Swept at the next startup.
+                }
+            }
         }
-        return "/uploads/" + name;
     }
 
+    /**
+     * Lets go of one reference to an upload. The file, and its variants, go only
+     * when nothing else uses the same image. Uploads from before content
+     * addressing have no count and were never shared, so they go at once.
+     */
     public void deleteByPublicPath(String publicPath) {
         if (publicPath == null || !publicPath.startsWith("/uploads/")) return;
         String name = publicPath.substring("/uploads/".length());
         // Reject anything that is not a bare filename.
         if (name.contains("/") || name.contains("..")) return;
+        transactions.executeWithoutResult(tx -> {
+            UploadBlob blob = blobs.lockByName(name).orElse(null);
+            if (blob != null && blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1); // still in use elsewhere
+                return;
+            }
+            if (blob != null) blobs.delete(blob);
+            // Deleted before the row lock is released. Released first, an upload
+            // on another instance could count on the object in between and then
+            // lose it. With no row (a legacy name) there is nothing to lock, but
+            // those names were never content hashes, so no upload can share one.
+            // Forgotten first, so a failed delete below still leaves no cache vouching for it.
+            events.publishEvent(new ImageDeleted(name));
+            List<String> doomed = new ArrayList<>(List.of(name));
+            for (ImageNames.Size size : ImageNames.Size.values()) {
+                String variant = ImageNames.variantName(name, size);
+                storedVariants.invalidate(variant);
+                doomed.add(variant);
+            }
+            for (String file : doomed) {
+                try {
+                    backend.delete(file);
+                } catch (IOException e) {
+                    // A locked file or unreachable store must not break the surrounding update.
+                    log.warn("Could not delete upload {}; it is left behind", file, e);
+                }
+            }
+        });
+    }
+
+    // ---------- reading, for /uploads and the variant generator ----------
+
+    public boolean exists(String name) throws IOException {
+        return backend.exists(name);
+    }
+
+    /** Like {@link #exists}, but remembers a variant once seen, so only a miss asks the store. */
+    public boolean variantExists(String name) throws IOException {
+        if (storedVariants.getIfPresent(name) != null) return true;
+        if (!backend.exists(name)) return false;
+        storedVariants.put(name, Boolean.TRUE);
+        return true;
+    }
+
+    public InputStream open(String name) throws IOException {
+        return backend.open(name);
+    }
+
+    /** See {@link StorageBackend#localFile}. */
+    public Path localFile(String name) {
+        return backend.localFile(name);
+    }
+
+    /** See {@link StorageBackend#directRead}. */
+    public StorageBackend.DirectRead directRead(String name) {
+        return backend.directRead(name);
+    }
+
+    /** A fresh file in the staging directory, for derived images. */
+    Path newStagingFile(String prefix) throws IOException {
+        return Files.createTempFile(partials, prefix, ".part");
+    }
+
+    /** Stores a derived image (a variant) made in a staging file. It is not reference counted. */
+    void putDerived(String name, Path staged) throws IOException {
+        backend.put(name, staged, contentType(name));
+        storedVariants.put(name, Boolean.TRUE);
+    }
+
+    /** Published once an upload is safely in place, by its file name. */
+    public record ImageStored(String name) {}
+
+    /** Published when an upload is deleted, by its file name, before its files go. */
+    public record ImageDeleted(String name) {}
+
+    /**
+     * Counts a reference to {@code name} and makes sure the object is stored.
+     * Both happen in one transaction, under the row lock, so a delete on any
+     * instance either finishes first (and the object is put back here) or waits
+     * until this reference is committed.
+     *
+     * The lock is held through the PUT of a first copy. That ties up a pooled
+     * connection for the length of one upload of at most 5 MB; duplicates skip
+     * the PUT.
+     *
+     * @return true if the backend took the staged file
+     */
+    private boolean place(String name, long size, Path staged) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return Boolean.TRUE.equals(transactions.execute(tx -> placeLocked(name, size, staged)));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance inserted the first row for this image at the
+                // same moment. It exists now, so the next attempt locks it instead.
+                if (attempt == 3) throw e;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private boolean placeLocked(String name, long size, Path staged) {
+        UploadBlob blob = blobs.lockByName(name).orElse(null);
+        if (blob == null) {
+            blob = new UploadBlob();
+            blob.setName(name);
+            blob.setSize(size);
+            blobs.saveAndFlush(blob);
+        } else {
+            blob.setRefCount(blob.getRefCount() + 1);
+        }
         try {
-            Files.deleteIfExists(root.resolve(name));
-        } catch (IOException ignored) {
-            // A missing or locked file must not break the surrounding update.
+            if (backend.exists(name)) return false;
+            backend.put(name, staged, contentType(name));
+            return true;
+        } catch (IOException e) {
+            // Rolls the count back with it.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** JPEG, PNG, GIF or WEBP, going by the first bytes of the file. */
+    private static String sniffExtension(ByteBuffer head) {
+        if (!head.hasRemaining()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "No file was uploaded");
+        }
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) return "png";
+        if (startsWith(head, 0, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) return "webp";
+        throw new ApiException(HttpStatus.BAD_REQUEST, "Unsupported image type. Use JPG, PNG, WEBP or GIF.");
+    }
+
+    private static boolean startsWith(ByteBuffer buf, int offset, int... magic) {
+        if (buf.remaining() < offset + magic.length) return false;
+        for (int i = 0; i < magic.length; i++) {
+            if ((buf.get(buf.position() + offset + i) & 0xFF) != magic[i]) return false;
         }
+        return true;
     }
 
-    public Path root() {
-        return root;
+    private static String contentType(String name) {
+        return MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
     }
 
-    private static String extensionOf(String filename) {
-        if (filename == null) return "";
-        int dot = filename.lastIndexOf('.');
-        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    private static ApiException tooLarge() {
+        return new ApiException(HttpStatus.PAYLOAD_TOO_LARGE, "Images must be 5 MB or smaller");
     }
 }
@@ -0,0 +1,244 @@
+package com.backend.Yummybunch.service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * A small in-memory inverted index with relevance ranking, prefix matching and
+ * single-typo tolerance.
+ *
+ * Each document is a weighted bag of terms. A query matches a document when
+ * every query word matches one of its terms exactly, as a prefix (so results
+ * appear while the user is still typing) or within one edit (so "piza" finds
+ * pizza). Exact matches outrank prefix matches, which outrank typo matches,
+ * and rarer terms count for more than common ones.
+ *
+ * Typo lookup uses a deletion neighbourhood: every indexed term is also filed
+ * under each of its one-character deletions, so candidates are found with a
+ * handful of hash lookups instead of a scan over the vocabulary.
+ *
+ * Thread-safe. Writes are rare (an owner editing a menu) and take an exclusive
+ * lock; searches share a read lock.
+ */
+public final class TextIndex {
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int MIN_TERM = 2;
+    private static final int MIN_FUZZY = 4;
+    private static final double PREFIX_FACTOR = 0.7;
+    private static final double FUZZY_FACTOR = 0.5;
+
+    /** Text to index and how much a match in it should count. */
+    public record Field(String text, float weight) {}
+
+    public record Hit(long id, String sortKey, double score) {}
+
+    private record Doc(String sortKey, String facet, Set<String> terms) {}
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    /** Sorted, so all terms with a given prefix are one contiguous sub-map. */
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    /** One-character deletion of a term -> the terms it came from. */
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+
+    /**
+     * Adds or replaces a document.
+     *
+     * @param sortKey tie-breaker for equal scores, and the order of a query-less listing
+     * @param facet   exact-match filter value (compared case-insensitively), may be null
+     */
+    public void put(long id, String sortKey, String facet, List<Field> fields) {
+        Map<String, Float> weights = new HashMap<>();
+        for (Field field : fields) {
+            for (String term : terms(field.text())) {
+                weights.merge(term, field.weight(), Math::max);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            docs.put(id, new Doc(sortKey, normaliseFacet(facet), weights.keySet()));
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> {
+                for (String d : deletionsOf(t)) deletions.computeIfAbsent(d, k -> new HashSet<>()).add(t);
+                return new HashMap<>();
+            }).put(id, weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            deletions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents matching every word of {@code query}, best first. A query with no
+     * usable words returns every document in sort-key order.
+     *
+     * @param facet when non-blank, only documents with this facet value are returned
+     */
+    public List<Hit> search(String query, String facet) {
+        List<String> words = terms(query).stream().distinct().toList();
+        String wanted = normaliseFacet(facet);
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores;
+            if (words.isEmpty()) {
+                scores = new HashMap<>();
+                for (Long id : docs.keySet()) scores.put(id, 0.0);
+            } else {
+                scores = null;
+                for (String word : words) {
+                    Map<Long, Double> matched = match(word);
+                    if (scores == null) {
+                        scores = matched;
+                    } else {
+                        scores.keySet().retainAll(matched.keySet());
+                        scores.replaceAll((id, score) -> score + matched.get(id));
+                    }
+                    if (scores.isEmpty()) return List.of();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> {
+                Doc doc = docs.get(id);
+                if (wanted == null || wanted.equals(doc.facet())) {
+                    hits.add(new Hit(id, doc.sortKey(), score));
+                }
+            });
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparing(Hit::sortKey, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparingLong(Hit::id));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Best score per document for one query word, over its exact, prefix and typo matches. */
+    private Map<Long, Double> match(String word) {
+        Map<Long, Double> best = new HashMap<>();
+
+        Map<Long, Float> exact = postings.get(word);
+        if (exact != null) collect(best, exact, 1.0);
+
+        // Every term with this prefix: a query word is at least MIN_TERM long, which
+        // already keeps the range to a slice of the vocabulary.
+        for (Map<Long, Float> posting : postings.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+            collect(best, posting, PREFIX_FACTOR);
+        }
+
+        if (word.length() >= MIN_FUZZY) {
+            for (String near : nearTerms(word)) collect(best, postings.get(near), FUZZY_FACTOR);
+        }
+        return best;
+    }
+
+    private void collect(Map<Long, Double> best, Map<Long, Float> posting, double factor) {
+        double idf = Math.log(1.0 + (double) docs.size() / posting.size());
+        posting.forEach((id, weight) -> best.merge(id, weight * factor * idf, Math::max));
+    }
+
+    /** Indexed terms exactly one edit (insert, delete, substitute or swap) away from {@code word}. */
+    private Set<String> nearTerms(String word) {
+        Set<String> candidates = new HashSet<>(deletions.getOrDefault(word, Set.of()));
+        for (String d : deletionsOf(word)) {
+            if (postings.containsKey(d)) candidates.add(d);
+            candidates.addAll(deletions.getOrDefault(d, Set.of()));
+        }
+        candidates.removeIf(c -> c.equals(word) || !withinOneEdit(word, c));
+        return candidates;
+    }
+
+    private void removeLocked(long id) {
+        Doc old = docs.remove(id);
+        if (old == null) return;
+        for (String term : old.terms()) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+                for (String d : deletionsOf(term)) {
+                    Set<String> from = deletions.get(d);
+                    if (from != null && from.remove(term) && from.isEmpty()) deletions.remove(d);
+                }
+            }
+        }
+    }
+
+    /** Lower-cased, accent-stripped words of at least {@link #MIN_TERM} characters. */
+    static List<String> terms(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> out = new ArrayList<>();
+        for (String t : SPLIT.split(folded)) {
+            if (t.length() >= MIN_TERM) out.add(t);
+        }
+        return out;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        if (term.length() < MIN_FUZZY - 1) return List.of();
+        List<String> out = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            out.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return out;
+    }
+
+    /** Optimal string alignment distance of at most one. */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length(), lb = b.length();
+        if (Math.abs(la - lb) > 1) return false;
+        int i = 0;
+        while (i < Math.min(la, lb) && a.charAt(i) == b.charAt(i)) i++;
+        if (i == la && i == lb) return true;
+        if (la == lb) {
+            // One substitution, or one swap of neighbouring characters.
+            if (a.substring(i + 1).equals(b.substring(i + 1))) return true;
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la > lb ? a.substring(i + 1).equals(b.substring(i)) : a.substring(i).equals(b.substring(i + 1));
+    }
+
+    private static String normaliseFacet(String facet) {
+        return facet == null || facet.isBlank() ? null : facet.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,225 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.VerificationCode;
+import com.backend.Yummybunch.repo.VerificationCodeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The latest verification code for each address, held in memory.
+ *
+ * Every verify and resend used to look the code up, and every wrong guess
+ * wrote its attempt count straight back. Now a code is put here when the
+ * transaction that issued it commits, and checks are answered from memory.
+ * Wrong guesses are counted here and written to the table every few seconds,
+ * when a code leaves memory, and at once on the guess that reaches the limit,
+ * so a lock-out survives a restart. The table is still the record: a code
+ * this instance has not seen (after a restart, say) is loaded from it on
+ * first use. Spending a code is a single conditional UPDATE, so a code can
+ * never be accepted twice.
+ *
+ * Old rows used to stay forever; a sweeper now deletes spent and expired
+ * ones in batches, found through the indexes in V9.
+ */
+@Component
+@Lazy(false) // has a schedule; see SchedulingConfig
+public class VerificationCodeStore {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificationCodeStore.class);
+
+    static final Duration TTL = Duration.ofMinutes(10);
+    private static final int SWEEP_BATCH = 500;
+
+    private final VerificationCodeRepository codes;
+    private final ApplicationEventPublisher events;
+    /**
+     * Keyed by lower-cased address. Entries outlive their codes, which check expiresAt themselves.
+     * A code dropped for space or replaced by a newer one has its count written first, or a
+     * reload from the table would hand back guesses already spent.
+     */
+    private final Cache<String, Code> latest = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(TTL)
+            .removalListener((String email, Code code, RemovalCause cause) -> {
+                if (code != null) save(code);
+            })
+            .build();
+    /** Codes whose attempt count has moved since it was last written. */
+    private final Set<Code> unsaved = ConcurrentHashMap.newKeySet();
+
+    public VerificationCodeStore(VerificationCodeRepository codes, ApplicationEventPublisher events) {
+        this.codes = codes;
+        this.events = events;
+    }
+
+    /** Published by {@link #issue}; picked up once the transaction commits. */
+    public record Issued(Code code) {}
+
+    /** Stores a fresh code for the address. Call inside the transaction that sends it. */
+    public Code issue(String email, String code) {
+        VerificationCode vc = new VerificationCode();
+        vc.setEmail(email);
+        vc.setCode(code);
+        vc.setExpiresAt(Instant.now().plus(TTL));
+        Code issued = new Code(codes.save(vc));
+        events.publishEvent(new Issued(issued));
+        return issued;
+    }
+
+    /** After commit only, so a code from a rolled-back signup is never accepted. */
+    @TransactionalEventListener
+    public void onIssued(Issued issued) {
+        remember(issued.code());
+    }
+
+    /** Published by {@link #consume}. */
+    public record Consumed(Code code) {}
+
+    /** After commit, or straight away when the code was spent outside a transaction. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConsumed(Consumed consumed) {
+        consumed.code().consumed = true;
+    }
+
+    /** The newest code sent to the address, or null if there is none. */
+    public Code latest(String email) {
+        Code held = latest.getIfPresent(email);
+        if (held != null) return held;
+        return codes.findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(email)
+                .map(vc -> remember(new Code(vc)))
+                .orElse(null);
+    }
+
+    /**
+     * Uses up one guess before the code is compared, so guesses made at the
+     * same moment cannot get past the limit between them. The guess that
+     * reaches the limit is written before this returns; it joins the caller's
+     * transaction, which must commit even when the guess is refused.
+     *
+     * @return guesses left after this one, or -1 if there were none left to take
+     */
+    public int takeAttempt(Code code) {
+        int before = code.attempts.getAndUpdate(n -> n < VerificationCode.MAX_ATTEMPTS ? n + 1 : n);
+        if (before >= VerificationCode.MAX_ATTEMPTS) return -1;
+        unsaved.add(code);
+        int left = VerificationCode.MAX_ATTEMPTS - before - 1;
+        if (left == 0) save(code);
+        return left;
+    }
+
+    /**
+     * Spends the code with one conditional UPDATE in the caller's transaction.
+     * The copy held here is marked used only once that transaction commits, so
+     * a verification that rolls back leaves the code usable in both places.
+     *
+     * @return false if another request spent it first
+     */
+    public boolean consume(Code code) {
+        if (codes.consume(code.id()) == 0) return false;
+        events.publishEvent(new Consumed(code));
+        return true;
+    }
+
+    /** Writes the guesses counted since the last run. A restart loses at most this interval's worth. */
+    @Scheduled(fixedDelayString = "${auth.codes.flush-ms:5000}")
+    public void saveAttempts() {
+        for (Code code : unsaved) save(code);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.codes.sweep-ms:600000}")
+    public void sweep() {
+        int removed = 0;
+        List<Long> ids;
+        do {
+            ids = codes.findSpentIds(Instant.now(), Limit.of(SWEEP_BATCH));
+            if (!ids.isEmpty()) codes.deleteAllByIdInBatch(ids);
+            removed += ids.size();
+        } while (ids.size() == SWEEP_BATCH);
+        if (removed > 0) log.debug("Removed {} spent verification codes", removed);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        saveAttempts();
+    }
+
+    // ---------- helpers ----------
+
+    private void save(Code code) {
+        // Removed before reading: a guess counted after this re-adds it for the next save.
+        if (unsaved.remove(code)) codes.raiseAttempts(code.id(), code.attempts());
+    }
+
+    /** Keeps whichever is newer, so a slow load from the table cannot replace a code just issued. */
+    private Code remember(Code code) {
+        return latest.asMap().merge(code.email(), code,
+                (held, incoming) -> incoming.createdAt().isAfter(held.createdAt()) ? incoming : held);
+    }
+
+    /** One code, as last known. Only the guess count and consumed flag change. */
+    public static final class Code {
+
+        private final Long id;
+        private final String email;
+        private final String value;
+        private final Instant createdAt;
+        private final Instant expiresAt;
+        private final AtomicInteger attempts;
+        private volatile boolean consumed;
+
+        private Code(VerificationCode vc) {
+            this.id = vc.getId();
+            this.email = vc.getEmail().toLowerCase();
+            this.value = vc.getCode();
+            this.createdAt = vc.getCreatedAt();
+            this.expiresAt = vc.getExpiresAt();
+            this.attempts = new AtomicInteger(vc.getAttempts());
+            this.consumed = vc.isConsumed();
+        }
+
+        public Long id() {
+            return id;
+        }
+
+        public String email() {
+            return email;
+        }
+
+        public Instant createdAt() {
+            return createdAt;
+        }
+
+        public int attempts() {
+            return attempts.get();
+        }
+
+        public boolean matches(String submitted) {
+            return value.equals(submitted == null ? "" : submitted.trim());
+        }
+
+        public boolean isExpired() {
+            return Instant.now().isAfter(expiresAt);
+        }
+
+        public boolean isUsable() {
+            return !consumed && !isExpired() && attempts.get() < VerificationCode.MAX_ATTEMPTS;
+        }
+    }
+}
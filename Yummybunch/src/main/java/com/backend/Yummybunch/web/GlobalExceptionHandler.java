@@ -3,6 +3,7 @@ package com.backend.Yummybunch.web;
 import com.backend.Yummybunch.service.MailService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponse;
@@ -25,6 +26,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(e.getStatus()).body(Map.of("message", e.getMessage()));
     }
 
+    /** Two requests changed the same row at once, and this one lost. Retrying is safe. */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleConflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", "This was changed by someone else at the same time. Reload and try again."));
+    }
+
     @ExceptionHandler(MailService.MailNotConfiguredException.class)
     public ResponseEntity<Map<String, String>> handleMail(MailService.MailNotConfiguredException e) {
         log.error("Mail not configured: {}", e.getMessage());
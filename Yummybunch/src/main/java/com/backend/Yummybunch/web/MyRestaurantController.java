@@ -1,19 +1,25 @@
 package com.backend.Yummybunch.web;
 
-import com.backend.Yummybunch.domain.MenuItem;
 import com.backend.Yummybunch.domain.Restaurant;
 import com.backend.Yummybunch.domain.User;
 import com.backend.Yummybunch.dto.Dtos.*;
 import com.backend.Yummybunch.repo.MenuItemRepository;
 import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.service.KitchenQueue;
+import com.backend.Yummybunch.service.MenuService;
 import com.backend.Yummybunch.service.OrderService;
+import com.backend.Yummybunch.service.RestaurantChanged;
 import com.backend.Yummybunch.service.StorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -27,15 +33,22 @@ public class MyRestaurantController {
 
     private final RestaurantRepository restaurants;
     private final MenuItemRepository menuItems;
+    private final MenuService menu;
     private final OrderService orderService;
+    private final KitchenQueue kitchen;
     private final StorageService storage;
+    private final ApplicationEventPublisher events;
 
     public MyRestaurantController(RestaurantRepository restaurants, MenuItemRepository menuItems,
-                                  OrderService orderService, StorageService storage) {
+                                  MenuService menu, OrderService orderService, KitchenQueue kitchen,
+                                  StorageService storage, ApplicationEventPublisher events) {
         this.restaurants = restaurants;
         this.menuItems = menuItems;
+        this.menu = menu;
         this.orderService = orderService;
+        this.kitchen = kitchen;
         this.storage = storage;
+        this.events = events;
     }
 
     // ---------- profile ----------
@@ -43,7 +56,7 @@ public class MyRestaurantController {
     @GetMapping
     public RestaurantView profile(@AuthenticationPrincipal User user) {
         Restaurant r = mine(user);
-        return RestaurantView.of(r, menuItems.countByRestaurantId(r.getId()));
+        return view(r);
     }
 
     @PutMapping
@@ -58,19 +71,28 @@ public class MyRestaurantController {
         if (req.openingTime() != null) r.setOpeningTime(req.openingTime());
         if (req.closingTime() != null) r.setClosingTime(req.closingTime());
         if (req.acceptingOrders() != null) r.setAcceptingOrders(req.acceptingOrders());
+        r.setUpdatedAt(Instant.now());
         restaurants.save(r);
-        return RestaurantView.of(r, menuItems.countByRestaurantId(r.getId()));
+        changed(r);
+        return view(r);
     }
 
-    @PostMapping("/cover")
+    @PostMapping(value = "/cover", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public RestaurantView uploadCover(@AuthenticationPrincipal User user,
                                       @RequestParam("file") MultipartFile file) {
         Restaurant r = mine(user);
-        String old = r.getCoverImageUrl();
-        r.setCoverImageUrl(storage.storeImage(file));
-        restaurants.save(r);
-        storage.deleteByPublicPath(old); // only after the new one is safely stored
-        return RestaurantView.of(r, menuItems.countByRestaurantId(r.getId()));
+        return replaceCover(r, storage.storeImage(file));
+    }
+
+    /**
+     * The image as the raw request body (Content-Type image/*). It is streamed
+     * straight to disk, skipping the multipart temp file and the second copy.
+     */
+    @PostMapping(value = "/cover", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public RestaurantView streamCover(@AuthenticationPrincipal User user,
+                                      HttpServletRequest request) throws IOException {
+        Restaurant r = mine(user);
+        return replaceCover(r, storage.storeImage(request.getInputStream(), request.getContentLengthLong()));
     }
 
     // ---------- menu ----------
@@ -85,40 +107,39 @@ public class MyRestaurantController {
     @PostMapping("/menu")
     public MenuItemView addItem(@AuthenticationPrincipal User user,
                                 @RequestBody MenuItemRequest req) {
-        Restaurant r = mine(user);
-        MenuItem item = new MenuItem();
-        item.setRestaurant(r);
-        applyTo(item, req, true);
-        return MenuItemView.of(menuItems.save(item));
+        return MenuItemView.of(menu.add(mine(user), req));
     }
 
     @PutMapping("/menu/{itemId}")
     public MenuItemView updateItem(@AuthenticationPrincipal User user,
                                    @PathVariable Long itemId,
                                    @RequestBody MenuItemRequest req) {
-        MenuItem item = ownedItem(user, itemId);
-        applyTo(item, req, false);
-        return MenuItemView.of(menuItems.save(item));
+        return MenuItemView.of(menu.update(mine(user), itemId, req));
     }
 
-    @PostMapping("/menu/{itemId}/image")
+    @PostMapping(value = "/menu/{itemId}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public MenuItemView uploadItemImage(@AuthenticationPrincipal User user,
                                         @PathVariable Long itemId,
                                         @RequestParam("file") MultipartFile file) {
-        MenuItem item = ownedItem(user, itemId);
-        String old = item.getImageUrl();
-        item.setImageUrl(storage.storeImage(file));
-        menuItems.save(item);
-        storage.deleteByPublicPath(old);
-        return MenuItemView.of(item);
+        Restaurant r = mine(user);
+        menu.owned(r, itemId); // before storing anything
+        return replaceItemImage(r, itemId, storage.storeImage(file));
+    }
+
+    /** Raw-body variant, as for the cover. */
+    @PostMapping(value = "/menu/{itemId}/image", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public MenuItemView streamItemImage(@AuthenticationPrincipal User user,
+                                        @PathVariable Long itemId,
+                                        HttpServletRequest request) throws IOException {
+        Restaurant r = mine(user);
+        menu.owned(r, itemId);
+        return replaceItemImage(r, itemId,
+                storage.storeImage(request.getInputStream(), request.getContentLengthLong()));
     }
 
     @DeleteMapping("/menu/{itemId}")
     public Map<String, String> deleteItem(@AuthenticationPrincipal User user, @PathVariable Long itemId) {
-        MenuItem item = ownedItem(user, itemId);
-        String image = item.getImageUrl();
-        menuItems.delete(item);
-        storage.deleteByPublicPath(image);
+        storage.deleteByPublicPath(menu.delete(mine(user), itemId));
         return Map.of("message", "Menu item removed");
     }
 
@@ -129,6 +150,34 @@ public class MyRestaurantController {
         return orderService.forOwner(require(user)).stream().map(OrderView::of).toList();
     }
 
+    /** Incoming orders one page at a time; see {@link OrderController#page}. */
+    @GetMapping(value = "/orders", params = {"limit", "!since"})
+    public PageView<OrderView> orderPage(@AuthenticationPrincipal User user,
+                                         @RequestParam Integer limit,
+                                         @RequestParam(required = false) String after) {
+        var page = orderService.pageForOwner(require(user), PageCursor.decode(after), PageCursor.pageSize(limit));
+        return new PageView<>(page.orders().stream().map(OrderView::of).toList(),
+                page.next() == null ? null : page.next().encode());
+    }
+
+    /** Incoming orders changed since the cursor; see {@link OrderController#changes}. */
+    @GetMapping(value = "/orders", params = "since")
+    public OrderChangesView orderChanges(@AuthenticationPrincipal User user, @RequestParam String since) {
+        var changes = orderService.changesForOwner(require(user), since);
+        return new OrderChangesView(changes.orders().stream().map(OrderView::of).toList(),
+                changes.cursor().toString());
+    }
+
+    /**
+     * What the kitchen still has to deal with: every order not yet completed,
+     * cancelled or rejected, oldest first. Served from memory, so polling it
+     * through the dinner rush costs no database work.
+     */
+    @GetMapping("/queue")
+    public List<OrderView> queue(@AuthenticationPrincipal User user) {
+        return kitchen.forOwner(require(user));
+    }
+
     /** Advance an order: RECEIVED, PREPARING, READY, COMPLETED or REJECTED. */
     @PostMapping("/orders/{orderId}/status")
     public OrderView advance(@AuthenticationPrincipal User user,
@@ -139,32 +188,35 @@ public class MyRestaurantController {
 
     // ---------- helpers ----------
 
-    private void applyTo(MenuItem item, MenuItemRequest req, boolean creating) {
-        if (creating || req.name() != null) {
-            if (req.name() == null || req.name().isBlank()) {
-                throw new ApiException(HttpStatus.BAD_REQUEST, "Item name is required");
-            }
-            item.setName(req.name().trim());
-        }
-        if (creating || req.price() != null) {
-            if (req.price() == null || req.price().compareTo(BigDecimal.ZERO) <= 0) {
-                throw new ApiException(HttpStatus.BAD_REQUEST, "Price must be greater than zero");
-            }
-            item.setPrice(req.price());
-        }
-        if (req.description() != null) item.setDescription(req.description());
-        if (req.category() != null) item.setCategory(req.category());
-        if (req.available() != null) item.setAvailable(req.available());
+    private RestaurantView replaceCover(Restaurant r, String stored) {
+        String old = r.getCoverImageUrl();
+        r.setCoverImageUrl(stored);
+        r.setUpdatedAt(Instant.now());
+        restaurants.save(r);
+        changed(r);
+        storage.deleteByPublicPath(old); // only after the new one is safely stored
+        return view(r);
     }
 
-    private MenuItem ownedItem(User user, Long itemId) {
-        Restaurant r = mine(user);
-        MenuItem item = menuItems.findById(itemId)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Menu item not found"));
-        if (!item.getRestaurant().getId().equals(r.getId())) {
-            throw new ApiException(HttpStatus.NOT_FOUND, "Menu item not found");
+    private MenuItemView replaceItemImage(Restaurant r, Long itemId, String stored) {
+        MenuService.ImageReplaced replaced;
+        try {
+            replaced = menu.replaceImage(r, itemId, stored);
+        } catch (RuntimeException e) {
+            storage.deleteByPublicPath(stored); // nothing ended up using it
+            throw e;
         }
-        return item;
+        storage.deleteByPublicPath(replaced.previous()); // only after the new one is safely stored
+        return MenuItemView.of(replaced.item());
+    }
+
+    /** Lets the search index (and anything else derived from the catalogue) catch up. */
+    private void changed(Restaurant r) {
+        events.publishEvent(new RestaurantChanged(r.getId()));
+    }
+
+    private RestaurantView view(Restaurant r) {
+        return RestaurantView.of(r, menuItems.countsFor(List.of(r)).get(r.getId()));
     }
 
     private Restaurant mine(User user) {
@@ -1,8 +1,11 @@
 package com.backend.Yummybunch.web;
 
 import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos.OrderChangesView;
 import com.backend.Yummybunch.dto.Dtos.OrderView;
+import com.backend.Yummybunch.dto.Dtos.PageView;
 import com.backend.Yummybunch.dto.Dtos.PlaceOrderRequest;
+import com.backend.Yummybunch.service.OrderIdempotency;
 import com.backend.Yummybunch.service.OrderService;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -16,14 +19,22 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotency idempotency;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIdempotency idempotency) {
         this.orderService = orderService;
+        this.idempotency = idempotency;
     }
 
+    /**
+     * Send an {@code Idempotency-Key} (a fresh UUID per checkout) to make this
+     * safe to retry: repeating the key returns the order already placed.
+     */
     @PostMapping
-    public OrderView place(@AuthenticationPrincipal User user, @RequestBody PlaceOrderRequest req) {
-        return OrderView.of(orderService.place(require(user), req));
+    public OrderView place(@AuthenticationPrincipal User user,
+                           @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                           @RequestBody PlaceOrderRequest req) {
+        return idempotency.place(require(user), idempotencyKey, req);
     }
 
     /** The signed-in customer's own orders, newest first. */
@@ -32,6 +43,27 @@ public class OrderController {
         return orderService.forCustomer(require(user)).stream().map(OrderView::of).toList();
     }
 
+    /** The same history one page at a time; {@code after} is the previous page's nextCursor. */
+    @GetMapping(params = {"limit", "!since"})
+    public PageView<OrderView> page(@AuthenticationPrincipal User user,
+                                    @RequestParam Integer limit,
+                                    @RequestParam(required = false) String after) {
+        var page = orderService.pageForCustomer(require(user), PageCursor.decode(after), PageCursor.pageSize(limit));
+        return new PageView<>(page.orders().stream().map(OrderView::of).toList(),
+                page.next() == null ? null : page.next().encode());
+    }
+
+    /**
+     * Only the orders changed since the given cursor. An empty {@code since}
+     * starts a fresh sync; keep polling with the cursor from each response.
+     */
+    @GetMapping(params = "since")
+    public OrderChangesView changes(@AuthenticationPrincipal User user, @RequestParam String since) {
+        var changes = orderService.changesForCustomer(require(user), since);
+        return new OrderChangesView(changes.orders().stream().map(OrderView::of).toList(),
+                changes.cursor().toString());
+    }
+
     /** Readable by the customer who placed it and by the restaurant that received it. */
     @GetMapping("/{id}")
     public OrderView one(@AuthenticationPrincipal User user, @PathVariable Long id) {
@@ -0,0 +1,46 @@
+package com.backend.Yummybunch.web;
+
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated list: the sort key and id of the last row
+ * already sent. The next page starts strictly after it, so a page costs an
+ * index range scan no matter how deep the client has scrolled — unlike OFFSET,
+ * which reads and discards every earlier row.
+ *
+ * Sent to clients as an opaque URL-safe string; they only ever echo it back.
+ */
+public record PageCursor(String key, long id) {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final char SEPARATOR = '\n';
+
+    public String encode() {
+        byte[] raw = (key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /** @return the decoded cursor, or null when {@code raw} is blank (first page). */
+    public static PageCursor decode(String raw) {
+        if (raw == null || raw.isBlank()) return null;
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(raw.trim()), StandardCharsets.UTF_8);
+            // The key may itself contain anything (a restaurant name), so split on the last separator.
+            int cut = text.lastIndexOf(SEPARATOR);
+            return new PageCursor(text.substring(0, cut), Long.parseLong(text.substring(cut + 1)));
+        } catch (RuntimeException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Invalid page cursor");
+        }
+    }
+
+    /** Clamps a requested page size, so no client can ask for an unbounded page. */
+    public static int pageSize(Integer requested) {
+        if (requested == null || requested < 1) return DEFAULT_PAGE_SIZE;
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+}
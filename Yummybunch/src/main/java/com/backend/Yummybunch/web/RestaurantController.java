@@ -1,40 +1,51 @@
 package com.backend.Yummybunch.web;
 
-import com.backend.Yummybunch.domain.MenuItem;
-import com.backend.Yummybunch.domain.Restaurant;
 import com.backend.Yummybunch.dto.Dtos.MenuItemView;
+import com.backend.Yummybunch.dto.Dtos.PageView;
 import com.backend.Yummybunch.dto.Dtos.RestaurantView;
-import com.backend.Yummybunch.repo.MenuItemRepository;
-import com.backend.Yummybunch.repo.RestaurantRepository;
-import org.springframework.http.HttpStatus;
+import com.backend.Yummybunch.service.CatalogueService;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
 /**
  * Public catalogue. None of this requires a token — a visitor must be able to
  * browse restaurants and read menus before deciding to create an account.
+ * Reads are served from {@link CatalogueService}'s cache.
  */
 @RestController
 @RequestMapping("/api/restaurants")
 public class RestaurantController {
 
-    private final RestaurantRepository restaurants;
-    private final MenuItemRepository menuItems;
+    private final CatalogueService catalogue;
 
-    public RestaurantController(RestaurantRepository restaurants, MenuItemRepository menuItems) {
-        this.restaurants = restaurants;
-        this.menuItems = menuItems;
+    public RestaurantController(CatalogueService catalogue) {
+        this.catalogue = catalogue;
     }
 
-    /** All restaurants, optionally filtered by free-text query and/or cuisine. */
+    /**
+     * All restaurants, optionally filtered by free-text query and/or cuisine.
+     * With a query, results are ranked by relevance and tolerate prefixes and typos.
+     */
     @GetMapping
     public List<RestaurantView> list(@RequestParam(required = false) String q,
                                      @RequestParam(required = false) String cuisine) {
-        return restaurants.search(q, cuisine).stream()
-                .map(r -> RestaurantView.of(r, menuItems.countByRestaurantId(r.getId())))
-                .toList();
+        return catalogue.list(q, cuisine);
+    }
+
+    /**
+     * The same listing one page at a time, ordered by name. {@code after} is the
+     * previous page's nextCursor.
+     */
+    @GetMapping(params = "limit")
+    public PageView<RestaurantView> page(@RequestParam(required = false) String q,
+                                         @RequestParam(required = false) String cuisine,
+                                         @RequestParam Integer limit,
+                                         @RequestParam(required = false) String after) {
+        return catalogue.page(q, cuisine, after, limit);
     }
 
     /** Kept as a separate path because the old frontend linked to /search. */
@@ -47,23 +58,39 @@ public class RestaurantController {
     /** Distinct cuisines, for the browse filter. */
     @GetMapping("/cuisines")
     public List<String> cuisines() {
-        return restaurants.findDistinctCuisines();
+        return catalogue.cuisines();
     }
 
+    /**
+     * Checked against the restaurant's versions before anything is loaded: an
+     * up-to-date client gets its 304 from the cached stamp alone.
+     */
     @GetMapping("/{id}")
-    public RestaurantView one(@PathVariable Long id) {
-        Restaurant r = restaurants.findById(id)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Restaurant not found"));
-        return RestaurantView.of(r, menuItems.countByRestaurantId(id));
+    public ResponseEntity<RestaurantView> one(@PathVariable Long id, WebRequest request) {
+        CatalogueService.Stamp stamp = catalogue.stamp(id);
+        if (request.checkNotModified(stamp.restaurantTag(), stamp.lastModified().toEpochMilli())) return null;
+        return conditional(catalogue.restaurant(id));
     }
 
     /** Only items the restaurant has marked available are exposed publicly. */
     @GetMapping("/{id}/menu")
-    public ResponseEntity<List<MenuItemView>> menu(@PathVariable Long id) {
-        if (!restaurants.existsById(id)) {
-            throw new ApiException(HttpStatus.NOT_FOUND, "Restaurant not found");
-        }
-        List<MenuItem> items = menuItems.findByRestaurantIdAndAvailableTrueOrderByCategoryAscNameAsc(id);
-        return ResponseEntity.ok(items.stream().map(MenuItemView::of).toList());
+    public ResponseEntity<List<MenuItemView>> menu(@PathVariable Long id, WebRequest request) {
+        CatalogueService.Stamp stamp = catalogue.stamp(id);
+        if (request.checkNotModified(stamp.menuTag(), stamp.lastModified().toEpochMilli())) return null;
+        return conditional(catalogue.menu(id));
+    }
+
+    /**
+     * Attaches the validators of the body actually sent, which may be a little
+     * newer than the stamp checked above. no-cache makes browsers revalidate
+     * every time instead of guessing a freshness lifetime from Last-Modified
+     * and showing a stale menu.
+     */
+    private static <T> ResponseEntity<T> conditional(CatalogueService.Versioned<T> v) {
+        return ResponseEntity.ok()
+                .eTag(v.etag())
+                .lastModified(v.lastModified())
+                .cacheControl(CacheControl.noCache())
+                .body(v.body());
     }
 }
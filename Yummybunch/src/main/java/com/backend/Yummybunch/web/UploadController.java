@@ -0,0 +1,206 @@
+package com.backend.Yummybunch.web;
+
+import com.backend.Yummybunch.domain.ImageNames;
+import com.backend.Yummybunch.service.ImageVariants;
+import com.backend.Yummybunch.service.StorageBackend;
+import com.backend.Yummybunch.service.StorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves uploaded images at /uploads/{name}.
+ *
+ * Upload names are content hashes (see StorageService), so a name serves the
+ * same bytes forever. That makes the name itself a strong ETag, and lets
+ * browsers and CDNs keep the file for a year without asking again. The one
+ * exception is a variant answered with its original while the variant is
+ * still being made: that reply must not be kept, or the full-size image would
+ * stick at the thumbnail URL.
+ *
+ * When the store is a bucket, the client is redirected there and no image
+ * bytes pass through this server at all. From local disk they never pass
+ * through the heap: under Tomcat the file is handed to the connector's
+ * sendfile, which writes it from the poller once this method has returned,
+ * so a slow phone does not hold a request thread for the whole download.
+ * Elsewhere (tests, small files) it goes by FileChannel.transferTo.
+ */
+@RestController
+@RequestMapping("/uploads")
+public class UploadController {
+
+    private static final String IMMUTABLE =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    // Tomcat's sendfile contract: see org.apache.catalina.Globals.
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    /** Below this, a plain write is cheaper than the hand-off (Tomcat's DefaultServlet uses the same). */
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    /** One range only; a request for several is answered with the whole file, which HTTP allows. */
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d{0,18})-(\\d{0,18})");
+
+    /** Precompressed siblings, best first. Nothing makes these for JPEG/PNG, which are compressed already. */
+    private static final String[][] ENCODINGS = {{"br", ".br"}, {"gzip", ".gz"}};
+
+    private final StorageService storage;
+    private final ImageVariants variants;
+
+    public UploadController(StorageService storage, ImageVariants variants) {
+        this.storage = storage;
+        this.variants = variants;
+    }
+
+    @GetMapping("/{name}")
+    public void serve(@PathVariable String name, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        if (name.startsWith(".") || name.contains("/") || name.contains("\\")) throw notFound();
+        String served = name;
+        boolean immutable = true;
+        // Only a variant can be missing for a while, and once seen it is remembered:
+        // asking the store on every request would cost a round trip each time.
+        if (ImageNames.isVariantName(name) && !storage.variantExists(name)) {
+            served = variants.fallbackFor(name);
+            if (served == null) throw notFound();
+            immutable = false;
+        }
+
+        StorageBackend.DirectRead direct = storage.directRead(served);
+        if (direct != null) {
+            // The store answers for a name it does not have.
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                    immutable ? CacheControl.maxAge(direct.cacheFor()).getHeaderValue() : REVALIDATE);
+            response.setStatus(HttpStatus.FOUND.value());
+            response.setHeader(HttpHeaders.LOCATION, direct.url().toString());
+            return;
+        }
+        Path file = storage.localFile(served);
+        if (file == null || !Files.isRegularFile(file)) throw notFound();
+
+        MediaType type = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        String etag = stem(file);
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        // Byte ranges refer to the identity encoding, so a range request always gets the plain file.
+        String encoding = null;
+        boolean hasSiblings = false;
+        for (String[] candidate : ENCODINGS) {
+            Path sibling = file.resolveSibling(file.getFileName() + candidate[1]);
+            if (!Files.isRegularFile(sibling)) continue;
+            hasSiblings = true;
+            if (encoding == null && rangeHeader == null && accepts(request, candidate[0])) {
+                encoding = candidate[0];
+                etag = etag + "-" + encoding;
+                file = sibling;
+            }
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE : REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (hasSiblings) response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // Sets the ETag, and answers 304 if the client already has these bytes.
+        if (new ServletWebRequest(request, response).checkNotModified("\"" + etag + "\"")) return;
+
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+        if (rangeHeader != null && rangeStillApplies(request, etag)) {
+            Matcher m = SINGLE_RANGE.matcher(rangeHeader.trim());
+            if (m.matches() && !(m.group(1).isEmpty() && m.group(2).isEmpty())) {
+                if (m.group(1).isEmpty()) {
+                    // "bytes=-500": the last 500 bytes.
+                    start = Math.max(0, length - Long.parseLong(m.group(2)));
+                } else {
+                    start = Long.parseLong(m.group(1));
+                    if (!m.group(2).isEmpty()) end = Math.min(end, Long.parseLong(m.group(2)));
+                }
+                if (start >= length || start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(type.toString());
+        if (encoding != null) response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) return;
+
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // exclusive
+            return;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long n = in.transferTo(position, remaining, out);
+                if (n <= 0) break;
+                position += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /** The name without its extension: the content hash, for anything stored since uploads were hashed. */
+    private static String stem(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    /** If-Range: resume only if the file is still the one the client started on. */
+    private static boolean rangeStillApplies(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.trim().equals("\"" + etag + "\"");
+    }
+
+    private static boolean accepts(HttpServletRequest request, String encoding) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) return false;
+        for (String part : header.split(",")) {
+            String[] token = part.trim().split(";");
+            if (!token[0].trim().equalsIgnoreCase(encoding)) continue;
+            return token.length < 2 || !token[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private static ApiException notFound() {
+        return new ApiException(HttpStatus.NOT_FOUND, "Image not found");
+    }
+}
@@ -0,0 +1,17 @@
+-- Serves the "changed since" order polls. The single-column indexes they
+-- replace are covered by the leading column of each composite, so they are
+-- dropped once the composites exist. Their names are the ones Hibernate
+-- generated for the old unnamed @Index(columnList = "customer_id") and
+-- @Index(columnList = "restaurant_id"); ddl-auto=update never drops them.
+
+-- PostgreSQL (folds the unquoted names to lower case)
+CREATE INDEX IF NOT EXISTS idx_orders_customer_updated ON orders (customer_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_orders_restaurant_updated ON orders (restaurant_id, updated_at);
+DROP INDEX IF EXISTS idxastys1dv61mdlp0n0wx0574r2;
+DROP INDEX IF EXISTS idxln938wsq1yvld9exr9vumu7ae;
+
+-- MySQL (local development)
+-- CREATE INDEX idx_orders_customer_updated ON orders (customer_id, updated_at);
+-- CREATE INDEX idx_orders_restaurant_updated ON orders (restaurant_id, updated_at);
+-- DROP INDEX IDXastys1dv61mdlp0n0wx0574r2 ON orders;
+-- DROP INDEX IDXln938wsq1yvld9exr9vumu7ae ON orders;
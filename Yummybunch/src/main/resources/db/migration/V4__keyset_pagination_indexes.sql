@@ -0,0 +1,5 @@
+-- Keyset pagination: order history newest first by (placed_at, id), and the
+-- restaurant catalogue by (name, id).
+CREATE INDEX idx_orders_customer_placed ON orders (customer_id, placed_at, id);
+CREATE INDEX idx_orders_restaurant_placed ON orders (restaurant_id, placed_at, id);
+CREATE INDEX idx_restaurants_name ON restaurants (name, id);
@@ -0,0 +1,4 @@
+-- Conditional GET for menus and restaurant profiles. Hibernate adds the
+-- columns; this backfills rows that existed before them.
+UPDATE restaurants SET updated_at = created_at WHERE updated_at IS NULL;
+UPDATE restaurants SET menu_version = 0 WHERE menu_version IS NULL;
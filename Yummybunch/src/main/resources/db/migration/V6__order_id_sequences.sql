@@ -0,0 +1,27 @@
+-- Orders, order items and order events now take their ids from sequences,
+-- 50 at a time, so checkout inserts can be batched. Apply this BEFORE
+-- deploying: otherwise ddl-auto creates the sequences starting at 1, and new
+-- rows collide with existing ids. Each sequence is moved past the highest id
+-- already in use. The old IDENTITY defaults stay on the columns but are no
+-- longer used.
+
+-- PostgreSQL
+CREATE SEQUENCE IF NOT EXISTS orders_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS order_events_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('orders_seq', GREATEST((SELECT MAX(id) FROM orders), 1));
+SELECT setval('order_items_seq', GREATEST((SELECT MAX(id) FROM order_items), 1));
+SELECT setval('order_events_seq', GREATEST((SELECT MAX(id) FROM order_events), 1));
+
+-- MySQL (local development) has no sequences; Hibernate keeps each one as a
+-- single-row table instead. Run these in place of the statements above:
+--
+-- CREATE TABLE IF NOT EXISTS orders_seq (next_val BIGINT);
+-- CREATE TABLE IF NOT EXISTS order_items_seq (next_val BIGINT);
+-- CREATE TABLE IF NOT EXISTS order_events_seq (next_val BIGINT);
+-- DELETE FROM orders_seq;
+-- DELETE FROM order_items_seq;
+-- DELETE FROM order_events_seq;
+-- INSERT INTO orders_seq SELECT COALESCE(MAX(id), 0) + 50 FROM orders;
+-- INSERT INTO order_items_seq SELECT COALESCE(MAX(id), 0) + 50 FROM order_items;
+-- INSERT INTO order_events_seq SELECT COALESCE(MAX(id), 0) + 50 FROM order_events;
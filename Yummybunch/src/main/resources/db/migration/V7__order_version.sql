@@ -0,0 +1,10 @@
+-- Orders carry a version for optimistic locking: every status move bumps it,
+-- and a write based on a stale copy fails instead of overwriting. Apply this
+-- BEFORE deploying: ddl-auto cannot add a NOT NULL column to a table that
+-- already has rows.
+
+-- PostgreSQL
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- MySQL (local development)
+-- ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
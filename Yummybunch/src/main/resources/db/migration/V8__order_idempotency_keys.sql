@@ -0,0 +1,22 @@
+-- Idempotency-Key support for placing orders: one small row per key, swept
+-- once older than orders.idempotency.ttl. ddl-auto=update creates this table
+-- by itself; apply this BEFORE deploying wherever JPA_DDL_AUTO is validate or
+-- none, or every keyed checkout fails on the missing table.
+
+-- PostgreSQL
+CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+    key_hash     VARCHAR(64) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    order_id     BIGINT      NOT NULL,
+    created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_order_idempotency_created ON order_idempotency_keys (created_at);
+
+-- MySQL (local development)
+-- CREATE TABLE IF NOT EXISTS order_idempotency_keys (
+--     key_hash     VARCHAR(64) PRIMARY KEY,
+--     request_hash VARCHAR(64) NOT NULL,
+--     order_id     BIGINT      NOT NULL,
+--     created_at   DATETIME(6) NOT NULL
+-- );
+-- CREATE INDEX idx_order_idempotency_created ON order_idempotency_keys (created_at);
@@ -0,0 +1,12 @@
+-- Serves VerificationCodeStore's sweep, which looks for spent codes with
+-- "consumed = true OR expires_at < now". One index per side of the OR lets
+-- PostgreSQL combine them (BitmapOr) instead of scanning the whole table.
+-- Spent rows are deleted by the sweep, so the matches stay few.
+
+-- PostgreSQL
+CREATE INDEX IF NOT EXISTS idx_verification_codes_consumed ON verification_codes (consumed);
+CREATE INDEX IF NOT EXISTS idx_verification_codes_expires ON verification_codes (expires_at);
+
+-- MySQL (local development)
+-- CREATE INDEX idx_verification_codes_consumed ON verification_codes (consumed);
+-- CREATE INDEX idx_verification_codes_expires ON verification_codes (expires_at);
@@ -0,0 +1,94 @@
+package com.backend.Yummybunch.bench;
+
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.security.JwtService;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What authenticating one request costs in JwtService.
+ *
+ * emailFromRebuildingParser is the old path (a fresh parser per call, then a
+ * full verify); emailFromPrebuiltParser verifies with a shared parser; emailFrom
+ * is the service as it stands, where repeat tokens come from the verified cache.
+ *
+ * Not a unit test. Run it with
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *      com.backend.Yummybunch.bench.JwtServiceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private JwtService jwt;
+    private SecretKey key;
+    private JwtParser parser;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwt = new JwtService(SECRET, TimeUnit.DAYS.toMillis(1));
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("diner@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        user.setEmailVerified(true);
+        token = jwt.issue(user);
+    }
+
+    @Benchmark
+    public String issue() {
+        return jwt.issue(user);
+    }
+
+    @Benchmark
+    public String emailFromRebuildingParser() {
+        return Jwts.parserBuilder().setSigningKey(key).build()
+                .parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String emailFromPrebuiltParser() {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String emailFrom() {
+        return jwt.emailFrom(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
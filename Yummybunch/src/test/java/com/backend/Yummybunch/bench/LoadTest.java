@@ -0,0 +1,101 @@
+package com.backend.Yummybunch.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load against a running instance: N clients each send a
+ * request, wait for the answer and go again, for a fixed time. Prints throughput,
+ * latency percentiles and errors. Given an ADMIN token, it also prints the
+ * server's live threads and heap afterwards (from /actuator/metrics).
+ *
+ * Used to compare the default 20-thread Tomcat with the 'virtual' profile. Run
+ * the same command against each deployment:
+ * <pre>
+ * java -cp target/test-classes com.backend.Yummybunch.bench.LoadTest \
+ *      http://localhost:8080 /api/restaurants 200 30 [admin-token]
+ * </pre>
+ * Pick a path that blocks on the database or disk. That is where the two
+ * setups differ; cached, CPU-light endpoints look the same on both.
+ */
+public class LoadTest {
+
+    private static final Pattern METRIC_VALUE = Pattern.compile("\"value\"\\s*:\\s*([0-9.eE+-]+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: LoadTest <base-url> <path> <clients> <seconds> [admin-token]");
+            System.exit(2);
+        }
+        String base = args[0];
+        URI target = URI.create(base + args[1]);
+        int clients = Integer.parseInt(args[2]);
+        long seconds = Long.parseLong(args[3]);
+        String token = args.length > 4 ? args[4] : null;
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        List<List<Long>> perClient = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        for (int c = 0; c < clients; c++) {
+            List<Long> latencies = new ArrayList<>();
+            perClient.add(latencies);
+            pool.execute(() -> {
+                HttpRequest request = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(60)).GET().build();
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies.add(System.nanoTime() - start);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(seconds + 120, TimeUnit.SECONDS);
+
+        List<Long> all = new ArrayList<>();
+        perClient.forEach(all::addAll);
+        Collections.sort(all);
+        System.out.printf("%s with %d clients for %ds%n", target, clients, seconds);
+        System.out.printf("requests %d, errors %d, %.1f req/s%n", all.size(), errors.get(), all.size() / (double) seconds);
+        if (!all.isEmpty()) {
+            System.out.printf("latency ms p50 %.1f, p95 %.1f, p99 %.1f, max %.1f%n",
+                    ms(all, 0.50), ms(all, 0.95), ms(all, 0.99), all.get(all.size() - 1) / 1e6);
+        }
+
+        if (token != null) {
+            System.out.printf("server live threads %.0f, heap used %.1f MB%n",
+                    metric(http, base, "jvm.threads.live", token),
+                    metric(http, base, "jvm.memory.used?tag=area:heap", token) / (1024 * 1024));
+        }
+    }
+
+    private static double ms(List<Long> sorted, double quantile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.floor(quantile * sorted.size()))) / 1e6;
+    }
+
+    private static double metric(HttpClient http, String base, String name, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + name))
+                .header("Authorization", "Bearer " + token).GET().build();
+        Matcher m = METRIC_VALUE.matcher(http.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        return m.find() ? Double.parseDouble(m.group(1)) : Double.NaN;
+    }
+}
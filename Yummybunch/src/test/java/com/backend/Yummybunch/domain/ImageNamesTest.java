@@ -0,0 +1,26 @@
+package com.backend.Yummybunch.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageNamesTest {
+
+    @Test
+    void publicPathsFollowTheUpload() {
+        assertThat(ImageNames.publicPath("/uploads/ab12.webp", ImageNames.Size.MEDIUM))
+                .isEqualTo("/uploads/ab12-medium.jpg");
+        assertThat(ImageNames.publicPath("https://elsewhere/pic.jpg", ImageNames.Size.THUMB)).isNull();
+    }
+
+    @Test
+    void variantNamesLeadBackToTheirOriginal() {
+        String thumb = ImageNames.variantName("ab12.png", ImageNames.Size.THUMB);
+
+        assertThat(thumb).isEqualTo("ab12-thumb.jpg");
+        assertThat(ImageNames.isVariantName(thumb)).isTrue();
+        assertThat(ImageNames.originalBase(thumb)).isEqualTo("ab12");
+        assertThat(ImageNames.originalBase("ab12.png")).isNull();
+        assertThat(ImageNames.originalBase("../ab12-thumb.jpg")).isNull();
+    }
+}
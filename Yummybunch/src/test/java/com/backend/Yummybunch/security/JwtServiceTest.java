@@ -0,0 +1,52 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.User;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123";
+
+    private final JwtService jwt = new JwtService(SECRET, 60_000);
+
+    @Test
+    void roundTripsTheClaims() {
+        String token = jwt.issue(user());
+
+        JwtService.TokenClaims claims = jwt.parse(token);
+        assertThat(claims).isEqualTo(new JwtService.TokenClaims(7L, "diner@example.com", "CUSTOMER", true));
+        // Second read comes from the verified cache and must agree.
+        assertThat(jwt.parse(token)).isEqualTo(claims);
+    }
+
+    @Test
+    void rejectsTamperedTokensEvenAfterTheOriginalWasCached() {
+        String token = jwt.issue(user());
+        jwt.parse(token);
+
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+        assertThat(jwt.parse(tampered)).isNull();
+    }
+
+    @Test
+    void rejectsExpiredAndForeignTokens() {
+        JwtService expired = new JwtService(SECRET, -1_000);
+        assertThat(expired.parse(expired.issue(user()))).isNull();
+
+        JwtService other = new JwtService("another-secret-another-secret-0123456789", 60_000);
+        assertThat(jwt.parse(other.issue(user()))).isNull();
+        assertThat(jwt.parse("not-a-token")).isNull();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setEmail("diner@example.com");
+        user.setRole(User.Role.CUSTOMER);
+        user.setEmailVerified(true);
+        return user;
+    }
+}
@@ -0,0 +1,79 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.web.ApiException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHasherTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void hashesAndVerifiesOnItsOwnPool() {
+        PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), meters, 4, 1, 8);
+
+        String hash = hasher.hash("correct horse");
+
+        assertThat(hasher.matches("correct horse", hash)).isTrue();
+        assertThat(hasher.matches("wrong horse", hash)).isFalse();
+        assertThat(meters.get("auth.password.hashing").tag("op", "verify").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void flagsHashesMadeAtAnotherStrength() {
+        PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(5), meters, 5, 1, 8);
+
+        assertThat(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("pw"))).isTrue();
+        assertThat(hasher.needsRehash(hasher.hash("pw"))).isFalse();
+    }
+
+    @Test
+    void turnsAwayWorkWhenThePoolAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder stuck = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String encoded) {
+                return true;
+            }
+        };
+        PasswordHasher hasher = new PasswordHasher(stuck, meters, 10, 1, 1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> hasher.hash("a"));  // occupies the only thread
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            callers.submit(() -> hasher.hash("b"));  // fills the queue
+            while (meters.get("auth.password.queued").gauge().value() < 1) Thread.onSpinWait();
+
+            assertThatThrownBy(() -> hasher.hash("c"))
+                    .isInstanceOfSatisfying(ApiException.class,
+                            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            assertThat(meters.get("auth.password.rejected").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+}
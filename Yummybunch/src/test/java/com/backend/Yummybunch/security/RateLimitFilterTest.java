@@ -0,0 +1,91 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
+
+class RateLimitFilterTest {
+
+    private final AtomicLong clock = new AtomicLong(42);
+    private final RateLimitFilter filter = new RateLimitFilter(List.of(
+            new RateLimitFilter.Group("auth", RateLimitFilter.Limit.parse("3/1m"),
+                    antMatcher(HttpMethod.POST, "/api/auth/login")),
+            new RateLimitFilter.Group("docs", RateLimitFilter.Limit.parse("off"), antMatcher("/api/docs/**")),
+            new RateLimitFilter.Group("api", RateLimitFilter.Limit.parse("100/1m"), antMatcher("/api/**"))),
+            clock::get);
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void aBurstIsAllowedThenRefusedUntilATokenComesBack() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse refused = send("POST", "/api/auth/login", "10.0.0.1");
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(refused.getContentAsString()).contains("\"message\"");
+
+        // Another address has its own bucket, and the same one refills at 3 a minute.
+        assertThat(send("POST", "/api/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void signedInCallersAreCountedByAccountWhereverTheyComeFrom() throws Exception {
+        User user = new User();
+        user.setId(7L);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        for (int i = 0; i < 3; i++) send("POST", "/api/auth/login", "10.0.0." + i);
+        assertThat(send("POST", "/api/auth/login", "10.0.0.9").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void groupsAreSeparateAndOffMeansUnlimited() throws Exception {
+        for (int i = 0; i < 3; i++) send("POST", "/api/auth/login", "10.0.0.1");
+
+        assertThat(send("GET", "/api/orders", "10.0.0.1").getStatus()).isEqualTo(200);
+        for (int i = 0; i < 500; i++) {
+            assertThat(send("GET", "/api/docs/page", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        assertThat(send("OPTIONS", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void rejectsLimitsThatMakeNoSense() {
+        assertThatThrownBy(() -> RateLimitFilter.Limit.parse("20")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitFilter.Limit.parse("0/1m")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(RateLimitFilter.Limit.parse("5/30s")).isEqualTo(new RateLimitFilter.Limit(5, 30_000_000_000L));
+    }
+
+    private MockHttpServletResponse send(String method, String path, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,126 @@
+package com.backend.Yummybunch.security;
+
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StompAuthInterceptorTest {
+
+    private final PrincipalCache principals = mock(PrincipalCache.class);
+    private final RestaurantRepository restaurants = mock(RestaurantRepository.class);
+    private final StompAuthInterceptor interceptor = new StompAuthInterceptor(principals, restaurants);
+    private final MessageChannel channel = mock(MessageChannel.class);
+
+    private User customer;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        customer = user(7L, User.Role.CUSTOMER);
+        owner = user(8L, User.Role.RESTAURANT);
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(30L);
+        when(restaurants.findByOwnerId(anyLong())).thenReturn(Optional.empty());
+        when(restaurants.findByOwnerId(8L)).thenReturn(Optional.of(restaurant));
+        when(principals.resolve("customer-token")).thenReturn(customer);
+    }
+
+    @Test
+    void aConnectWithoutAValidTokenIsRefused() {
+        assertThatThrownBy(() -> send(connect(null))).isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> send(connect("Basic abc"))).isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> send(connect("Bearer expired"))).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void aConnectWithATokenSignsTheSessionIn() {
+        Message<?> connected = send(connect("Bearer customer-token"));
+
+        Principal user = StompHeaderAccessor.wrap(connected).getUser();
+        assertThat(user).isInstanceOfSatisfying(UsernamePasswordAuthenticationToken.class,
+                auth -> assertThat(auth.getPrincipal()).isSameAs(customer));
+    }
+
+    @Test
+    void aCustomerMayOnlyListenToTheirOwnOrders() {
+        send(subscribe(customer, "/topic/customers/7/orders"));
+
+        assertThatThrownBy(() -> send(subscribe(customer, "/topic/customers/9/orders")))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> send(subscribe(customer, "/topic/restaurants/30/orders")))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> send(subscribe(customer, "/topic/customers/7/orders/../9")))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void anOwnerMayOnlyListenToTheirOwnRestaurant() {
+        send(subscribe(owner, "/topic/restaurants/30/orders"));
+
+        assertThatThrownBy(() -> send(subscribe(owner, "/topic/restaurants/31/orders")))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void anUnauthenticatedSessionCannotSubscribeOrAnyoneSend() {
+        assertThatThrownBy(() -> send(subscribe(null, "/topic/customers/7/orders")))
+                .isInstanceOf(AccessDeniedException.class);
+
+        StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+        send.setUser(signedIn(customer));
+        send.setDestination("/topic/customers/7/orders");
+        assertThatThrownBy(() -> send(message(send))).isInstanceOf(AccessDeniedException.class);
+    }
+
+    private Message<?> send(Message<?> message) {
+        return interceptor.preSend(message, channel);
+    }
+
+    private static Message<byte[]> connect(String authorization) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        if (authorization != null) accessor.addNativeHeader("Authorization", authorization);
+        return message(accessor);
+    }
+
+    private static Message<byte[]> subscribe(User user, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        if (user != null) accessor.setUser(signedIn(user));
+        accessor.setDestination(destination);
+        return message(accessor);
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Principal signedIn(User user) {
+        return new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+
+    private static User user(long id, User.Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,116 @@
+package com.backend.Yummybunch.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ImageVariantsTest {
+
+    @TempDir
+    Path dir;
+
+    private StorageService storage;
+    private ImageVariants variants;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = StorageServiceTest.storage(dir, new LocalStorageBackend(dir.toString()), event -> {});
+        variants = new ImageVariants(storage, 4);
+        // Translucent, so the JPEG conversion has to flatten it.
+        ImageIO.write(new BufferedImage(2400, 1200, BufferedImage.TYPE_INT_ARGB), "png", dir.resolve("cover.png").toFile());
+    }
+
+    @Test
+    void makesThreeShrunkJpegsNextToTheOriginal() throws IOException {
+        variants.generate("cover.png");
+
+        assertThat(width("cover-large.jpg")).isEqualTo(1080);
+        assertThat(width("cover-medium.jpg")).isEqualTo(480);
+        assertThat(width("cover-thumb.jpg")).isEqualTo(160);
+        assertThat(ImageIO.read(dir.resolve("cover-thumb.jpg").toFile()).getHeight()).isEqualTo(80);
+    }
+
+    @Test
+    void fallsBackToTheOriginalOnlyForVariantNames() {
+        assertThat(variants.fallbackFor("cover-medium.jpg")).isEqualTo("cover.png");
+        assertThat(variants.fallbackFor("cover.png")).isNull();
+        assertThat(variants.fallbackFor("missing-thumb.jpg")).isNull();
+        assertThat(variants.fallbackFor("../cover-thumb.jpg")).isNull();
+    }
+
+    @Test
+    void deletingAnUploadDeletesItsVariants() {
+        variants.generate("cover.png");
+
+        storage.deleteByPublicPath("/uploads/cover.png");
+
+        assertThat(dir.resolve("cover.png")).doesNotExist();
+        assertThat(dir.resolve("cover-thumb.jpg")).doesNotExist();
+        assertThat(dir.resolve("cover-large.jpg")).doesNotExist();
+    }
+
+    @Test
+    void aFailedDeleteStillRemovesTheRest() throws IOException {
+        StorageBackend backend = spy(new LocalStorageBackend(dir.toString()));
+        doThrow(new IOException("locked")).when(backend).delete("cover.png");
+        storage = StorageServiceTest.storage(dir, backend, event -> {});
+        variants = new ImageVariants(storage, 4);
+        variants.generate("cover.png");
+
+        storage.deleteByPublicPath("/uploads/cover.png");
+
+        assertThat(dir.resolve("cover.png")).exists();
+        assertThat(dir.resolve("cover-thumb.jpg")).doesNotExist();
+        assertThat(dir.resolve("cover-large.jpg")).doesNotExist();
+    }
+
+    @Test
+    void aDeletedOriginalIsNoLongerOfferedAsAFallback() {
+        storage = StorageServiceTest.storage(dir, new LocalStorageBackend(dir.toString()), event -> {
+            if (event instanceof StorageService.ImageDeleted deleted) variants.onDeleted(deleted);
+        });
+        variants = new ImageVariants(storage, 4);
+        assertThat(variants.fallbackFor("cover-thumb.jpg")).isEqualTo("cover.png");
+
+        storage.deleteByPublicPath("/uploads/cover.png");
+
+        assertThat(variants.fallbackFor("cover-thumb.jpg")).isNull();
+    }
+
+    @Test
+    void knownVariantsAndOriginalsAreNotLookedUpAgain() throws IOException {
+        StorageBackend backend = spy(new LocalStorageBackend(dir.toString()));
+        storage = StorageServiceTest.storage(dir, backend, event -> {});
+        variants = new ImageVariants(storage, 4);
+
+        variants.generate("cover.png");
+        assertThat(storage.variantExists("cover-thumb.jpg")).isTrue();
+        verify(backend, never()).exists("cover-thumb.jpg");
+
+        storage.deleteByPublicPath("/uploads/cover.png");
+        assertThat(storage.variantExists("cover-thumb.jpg")).isFalse();
+
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("cover.png").toFile());
+        assertThat(variants.fallbackFor("cover-thumb.jpg")).isEqualTo("cover.png");
+        assertThat(variants.fallbackFor("cover-medium.jpg")).isEqualTo("cover.png");
+        verify(backend, times(1)).exists("cover.jpg");
+    }
+
+    private int width(String name) throws IOException {
+        assertThat(Files.exists(dir.resolve(name))).as(name).isTrue();
+        return ImageIO.read(dir.resolve(name).toFile()).getWidth();
+    }
+}
@@ -0,0 +1,121 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.Order;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A later page must be a range read of the index starting at the cursor. The
+ * rows alone cannot show that (an OFFSET-like scan returns the same ones), so
+ * this checks the statement Hibernate sends and the plan H2 makes for it.
+ */
+@SpringBootTest
+class KeysetPagingTest {
+
+    @Autowired private OrderService orderService;
+    @Autowired private TestData data;
+    @Autowired private Recorder sql;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private RestaurantRepository restaurants;
+
+    @Test
+    void laterPagesSeekToTheCursorInTheIndex() {
+        TestData.Kitchen k = data.kitchen("Paged Kitchen");
+        List<Long> placed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            placed.add(orderService.place(k.customer(), new Dtos.PlaceOrderRequest(k.restaurant().getId(),
+                    "1 Test Road", null, List.of(new Dtos.PlaceOrderRequest.LineRequest(k.soup().getId(), 1))))
+                    .getId());
+        }
+
+        var first = orderService.pageForCustomer(k.customer(), null, 2);
+        sql.statements.clear();
+        var second = orderService.pageForCustomer(k.customer(), first.next(), 2);
+
+        assertThat(ids(first.orders())).containsExactly(placed.get(4), placed.get(3));
+        assertThat(ids(second.orders())).containsExactly(placed.get(2), placed.get(1));
+
+        String page = sql.statements.stream().filter(s -> s.contains("from orders")).findFirst().orElseThrow();
+        // A row comparison and a plain bound, not "IS NULL OR ... OR ...".
+        assertThat(page).containsPattern("\\(o1_0\\.placed_at,o1_0\\.id\\)<\\(\\?,\\?\\)")
+                .contains("o1_0.placed_at<=?")
+                .doesNotContainIgnoringCase(" is null")
+                .doesNotContainIgnoringCase(" or ");
+
+        Timestamp after = Timestamp.from(second.orders().get(0).getPlacedAt());
+        String plan = jdbc.queryForObject("EXPLAIN " + page, String.class,
+                k.customer().getId(), after, after, placed.get(3), 0, 3);
+        // The index is entered at the cursor, rather than read from the top and filtered.
+        assertThat(plan).containsIgnoringCase("IDX_ORDERS_CUSTOMER_PLACED: CUSTOMER_ID = ?1")
+                .containsIgnoringCase("AND PLACED_AT <= ?2");
+    }
+
+    @Test
+    void catalogueLaterPagesUseARowComparisonToo() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> made = new ArrayList<>();
+        // Two share a name, so the id has to break the tie across the page boundary.
+        for (String name : List.of("A ", "B ", "B ", "C ")) {
+            made.add(data.restaurant(data.user(User.Role.RESTAURANT), name + tag).getId());
+        }
+
+        List<Restaurant> first = restaurants.searchFirstPage(tag, null, Limit.of(2));
+        Restaurant last = first.get(1);
+        sql.statements.clear();
+        List<Restaurant> second = restaurants.searchPage(tag, null, last.getName(), last.getId(), Limit.of(2));
+
+        assertThat(first).extracting(Restaurant::getId).containsExactly(made.get(0), made.get(1));
+        assertThat(second).extracting(Restaurant::getId).containsExactly(made.get(2), made.get(3));
+        assertThat(sql.statements).singleElement().asString()
+                .containsPattern("\\(r1_0\\.name,r1_0\\.id\\)>\\(\\?,\\?\\)")
+                .contains("r1_0.name>=?");
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+
+    /** Every SQL statement the session factory prepares. */
+    static class Recorder implements StatementInspector {
+        final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String statement) {
+            statements.add(statement);
+            return statement;
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Recorder recorder() {
+            return new Recorder();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer recordStatements(Recorder recorder) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, recorder);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Order;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class KitchenQueueTest {
+
+    @Autowired private KitchenQueue kitchen;
+    @Autowired private OrderService orderService;
+    @Autowired private TestData data;
+    @Autowired private EntityManagerFactory emf;
+
+    private User customer;
+    private User owner;
+    private Restaurant restaurant;
+    private MenuItem soup;
+
+    @BeforeEach
+    void setUp() {
+        TestData.Kitchen k = data.kitchen("Queue Kitchen");
+        customer = k.customer();
+        owner = k.owner();
+        restaurant = k.restaurant();
+        soup = k.soup();
+    }
+
+    @Test
+    void holdsOpenOrdersOldestFirstAndDropsThemWhenDone() {
+        Order first = place();
+        Order second = place();
+        Order done = place();
+        orderService.advance(owner, done.getId(), "REJECTED", "Out of soup");
+
+        // The first read loads from the database...
+        assertThat(ids(kitchen.forOwner(owner))).containsExactly(first.getId(), second.getId());
+
+        orderService.advance(owner, first.getId(), "RECEIVED", null);
+        Order third = place();
+        orderService.cancel(customer, second.getId());
+
+        // ...and later ones are kept current without it.
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        List<Dtos.OrderView> queue = kitchen.forOwner(owner);
+
+        assertThat(ids(queue)).containsExactly(first.getId(), third.getId());
+        assertThat(queue.get(0).status()).isEqualTo("RECEIVED");
+        assertThat(stats.getPrepareStatementCount()).isZero();
+
+        for (String status : List.of("PREPARING", "READY", "COMPLETED")) {
+            orderService.advance(owner, first.getId(), status, null);
+        }
+        assertThat(ids(kitchen.forOwner(owner))).containsExactly(third.getId());
+    }
+
+    @Test
+    void queuesWithOpenOrdersAreLoadedAtStartup() {
+        Order open = place();
+        Order done = place();
+        orderService.advance(owner, done.getId(), "REJECTED", "Out of soup");
+
+        kitchen.preload();
+
+        // Not even the owner's restaurant is looked up on the first read.
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        assertThat(ids(kitchen.forOwner(owner))).containsExactly(open.getId());
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    private Order place() {
+        return orderService.place(customer, new Dtos.PlaceOrderRequest(restaurant.getId(), "1 Test Road", null,
+                List.of(new Dtos.PlaceOrderRequest.LineRequest(soup.getId(), 1))));
+    }
+
+    private static List<Long> ids(List<Dtos.OrderView> views) {
+        return views.stream().map(Dtos.OrderView::id).toList();
+    }
+}
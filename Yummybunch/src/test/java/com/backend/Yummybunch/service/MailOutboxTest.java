@@ -0,0 +1,82 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.OutboundMail;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.repo.OutboundMailRepository;
+import com.backend.Yummybunch.repo.VerificationCodeRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Registration only queues the verification email; it goes out after commit.
+ * The SMTP server is an in-process fake on the port the test config points at.
+ */
+@SpringBootTest(properties = {
+        "spring.mail.username=noreply@yummybunch.test",
+        // Keep the poller out of the way; these tests exercise the after-commit send.
+        "mail.outbox.poll-ms=600000"
+})
+class MailOutboxTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired private AuthService auth;
+    @Autowired private OutboundMailRepository outbox;
+    @Autowired private VerificationCodeRepository codes;
+
+    @Test
+    void deliversTheCodeAfterRegistrationCommits() throws Exception {
+        String email = register();
+
+        assertThat(smtp.waitForIncomingEmail(5_000, 1)).isTrue();
+        var received = smtp.getReceivedMessages()[0];
+        String code = codes.findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(email).orElseThrow().getCode();
+        assertThat(received.getAllRecipients()[0].toString()).isEqualTo(email);
+        assertThat(GreenMailUtil.getBody(received)).contains(code);
+
+        OutboundMail mail = await(email, m -> m.getStatus() == OutboundMail.Status.SENT);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void registrationSucceedsWhileTheMailServerIsDownAndTheSendIsRetried() throws Exception {
+        smtp.stop();
+
+        String email = register();
+
+        OutboundMail mail = await(email, m -> m.getAttempts() == 1);
+        assertThat(mail.getStatus()).isEqualTo(OutboundMail.Status.PENDING);
+        assertThat(mail.getLastError()).isNotBlank();
+        assertThat(mail.getNextAttemptAt()).isAfter(Instant.now());
+    }
+
+    private String register() {
+        String email = UUID.randomUUID() + "@example.com";
+        auth.register(email, "password123", "Dee", null, User.Role.CUSTOMER, null, null, null);
+        return email;
+    }
+
+    private OutboundMail await(String recipient, Predicate<OutboundMail> condition) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            OutboundMail mail = outbox.findAll().stream()
+                    .filter(m -> m.getRecipient().equals(recipient))
+                    .findFirst().orElse(null);
+            if (mail != null && condition.test(mail)) return mail;
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Outbox entry for " + recipient + " never reached the expected state");
+    }
+}
@@ -0,0 +1,101 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.web.ApiException;
+import com.backend.Yummybunch.web.RestaurantController;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class MenuServiceTest {
+
+    @Autowired private MenuService menu;
+    @Autowired private CatalogueService catalogue;
+    @Autowired private RestaurantRepository restaurants;
+    @Autowired private TestData data;
+    @Autowired private EntityManagerFactory emf;
+
+    private Restaurant restaurant;
+
+    @BeforeEach
+    void setUp() {
+        restaurant = data.restaurant(data.user(User.Role.RESTAURANT), "Tagged Kitchen");
+    }
+
+    @Test
+    void theMenuTagIsTheVersionAndMovesWithEveryEdit() {
+        MenuItem soup = menu.add(restaurant, item("Soup", "4.50", true));
+        var first = catalogue.menu(restaurant.getId());
+        assertThat(first.body()).extracting(Dtos.MenuItemView::name).containsExactly("Soup");
+        assertThat(first.etag()).isEqualTo(catalogue.stamp(restaurant.getId()).menuTag());
+
+        // Hidden items are versioned too: the tag only has to be new, not different content.
+        menu.add(restaurant, item("Secret", "9.00", false));
+        var second = catalogue.menu(restaurant.getId());
+        assertThat(second.etag()).isNotEqualTo(first.etag());
+        assertThat(second.body()).isEqualTo(first.body());
+
+        menu.update(restaurant, soup.getId(), item(null, "5.00", null));
+        var repriced = catalogue.menu(restaurant.getId());
+        assertThat(repriced.body().get(0).price()).isEqualByComparingTo("5.00");
+        assertThat(repriced.etag()).isNotEqualTo(second.etag());
+        assertThat(catalogue.restaurant(restaurant.getId()).etag())
+                .isEqualTo(catalogue.stamp(restaurant.getId()).restaurantTag());
+    }
+
+    @Test
+    void anUpToDateClientIsAnsweredWithoutLoadingTheMenu() throws Exception {
+        MenuItem soup = menu.add(restaurant, item("Soup", "4.50", true));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new RestaurantController(catalogue)).build();
+        String path = "/api/restaurants/" + restaurant.getId() + "/menu";
+
+        String etag = mvc.perform(get(path)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        mvc.perform(get(path).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertThat(stats.getPrepareStatementCount()).isZero();
+
+        menu.update(restaurant, soup.getId(), item(null, "5.00", null));
+        mvc.perform(get(path).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", catalogue.stamp(restaurant.getId()).menuTag()))
+                .andExpect(jsonPath("$[0].price").value(5.00));
+    }
+
+    @Test
+    void aRefusedEditLeavesTheVersionAlone() {
+        MenuItem soup = menu.add(restaurant, item("Soup", "4.50", true));
+        long version = restaurants.findById(restaurant.getId()).orElseThrow().getMenuVersion();
+
+        assertThatThrownBy(() -> menu.update(restaurant, soup.getId(), item(null, "-1", null)))
+                .isInstanceOf(ApiException.class);
+
+        assertThat(restaurants.findById(restaurant.getId()).orElseThrow().getMenuVersion()).isEqualTo(version);
+    }
+
+    private static Dtos.MenuItemRequest item(String name, String price, Boolean available) {
+        return new Dtos.MenuItemRequest(name, null, price == null ? null : new BigDecimal(price), null, available);
+    }
+}
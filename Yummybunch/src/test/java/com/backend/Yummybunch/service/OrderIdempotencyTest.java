@@ -0,0 +1,124 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import com.backend.Yummybunch.repo.IdempotencyKeyRepository;
+import com.backend.Yummybunch.repo.OrderRepository;
+import com.backend.Yummybunch.web.ApiException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderIdempotencyTest {
+
+    @Autowired private OrderIdempotency idempotency;
+    @Autowired private OrderRepository orders;
+    @Autowired private IdempotencyKeyRepository keys;
+    @Autowired private TestData data;
+    @Autowired private EntityManagerFactory emf;
+
+    private User customer;
+    private Restaurant restaurant;
+    private MenuItem soup;
+
+    @BeforeEach
+    void setUp() {
+        TestData.Kitchen k = data.kitchen("Retry Kitchen");
+        customer = k.customer();
+        restaurant = k.restaurant();
+        soup = k.soup();
+    }
+
+    @Test
+    void aRetryReturnsTheSameOrderWithoutTouchingTheDatabase() {
+        String key = UUID.randomUUID().toString();
+        Dtos.OrderView first = idempotency.place(customer, key, cart(2));
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        Dtos.OrderView retry = idempotency.place(customer, key, cart(2));
+
+        assertThat(retry).isEqualTo(first);
+        assertThat(stats.getPrepareStatementCount()).isZero();
+        assertThat(placedOrders()).isEqualTo(1);
+
+        // A new key is a new checkout.
+        idempotency.place(customer, UUID.randomUUID().toString(), cart(2));
+        assertThat(placedOrders()).isEqualTo(2);
+    }
+
+    @Test
+    void aKeyCannotBeReusedForADifferentCart() {
+        String key = UUID.randomUUID().toString();
+        idempotency.place(customer, key, cart(1));
+
+        assertThatThrownBy(() -> idempotency.place(customer, key, cart(3)))
+                .isInstanceOfSatisfying(ApiException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(placedOrders()).isEqualTo(1);
+    }
+
+    @Test
+    void copiesArrivingTogetherPlaceOneOrder() throws Exception {
+        String key = UUID.randomUUID().toString();
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Dtos.OrderView>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return idempotency.place(customer, key, cart(1));
+                }));
+            }
+            start.countDown();
+            List<Long> ids = new ArrayList<>();
+            for (Future<Dtos.OrderView> f : futures) ids.add(f.get().id());
+
+            assertThat(ids).containsOnly(ids.get(0));
+            assertThat(placedOrders()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void theSweepLeavesKeysThatAreStillLive() {
+        String key = UUID.randomUUID().toString();
+        idempotency.place(customer, key, cart(1));
+        long before = keys.count();
+
+        idempotency.sweep();
+
+        assertThat(keys.count()).isEqualTo(before);
+    }
+
+    private Dtos.PlaceOrderRequest cart(int quantity) {
+        return new Dtos.PlaceOrderRequest(restaurant.getId(), "1 Test Road", null,
+                List.of(new Dtos.PlaceOrderRequest.LineRequest(soup.getId(), quantity)));
+    }
+
+    private int placedOrders() {
+        return orders.findByCustomerIdOrderByPlacedAtDesc(customer.getId()).size();
+    }
+}
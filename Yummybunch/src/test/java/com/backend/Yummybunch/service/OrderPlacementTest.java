@@ -0,0 +1,59 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.dto.Dtos;
+import com.backend.Yummybunch.web.ApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class OrderPlacementTest {
+
+    @Autowired private OrderService orderService;
+    @Autowired private TestData data;
+
+    private TestData.Kitchen kitchen;
+
+    @BeforeEach
+    void setUp() {
+        kitchen = data.kitchen("Bulk Kitchen");
+    }
+
+    @Test
+    void quantitiesThatWouldOverflowAreABadRequest() {
+        // Used to overflow in the merge and come back as a 500.
+        assertRefused(line(Integer.MAX_VALUE), line(1));
+        // Fits an int, but not the total column: used to fail on insert.
+        assertRefused(line(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void repeatedLinesAreMergedWithoutALimitPerDish() {
+        var order = orderService.place(kitchen.customer(), cart(line(60), line(90)));
+
+        assertThat(order.getItems()).singleElement()
+                .satisfies(i -> assertThat(i.getQuantity()).isEqualTo(150));
+        assertThat(order.getTotal()).isEqualByComparingTo("675.00");
+    }
+
+    private void assertRefused(Dtos.PlaceOrderRequest.LineRequest... lines) {
+        assertThatThrownBy(() -> orderService.place(kitchen.customer(), cart(lines)))
+                .isInstanceOfSatisfying(ApiException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private Dtos.PlaceOrderRequest cart(Dtos.PlaceOrderRequest.LineRequest... lines) {
+        return new Dtos.PlaceOrderRequest(kitchen.restaurant().getId(), "1 Test Road", null, List.of(lines));
+    }
+
+    private Dtos.PlaceOrderRequest.LineRequest line(int quantity) {
+        return new Dtos.PlaceOrderRequest.LineRequest(kitchen.soup().getId(), quantity);
+    }
+}
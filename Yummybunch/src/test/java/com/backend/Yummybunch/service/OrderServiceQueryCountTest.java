@@ -0,0 +1,114 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loading a list of orders must cost a fixed number of statements, however many
+ * orders there are: one for the orders with their restaurant and customer, one
+ * batch for items and one for events. Placing an order likewise reads the
+ * whole cart at once rather than item by item.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+class OrderServiceQueryCountTest {
+
+    private static final int ORDERS = 12;
+    private static final long MAX_STATEMENTS = 3;
+
+    @Autowired private OrderService orderService;
+    @Autowired private TestData data;
+    @Autowired private EntityManagerFactory emf;
+
+    private User customer;
+    private User owner;
+    private Restaurant restaurant;
+    private Statistics stats;
+
+    @BeforeEach
+    void placeOrders() {
+        TestData.Kitchen k = data.kitchen("Counted Kitchen");
+        customer = k.customer();
+        owner = k.owner();
+        restaurant = k.restaurant();
+
+        MenuItem soup = k.soup();
+        MenuItem bread = data.dish(restaurant, "Bread");
+        for (int i = 0; i < ORDERS; i++) {
+            orderService.place(customer, new Dtos.PlaceOrderRequest(restaurant.getId(), "1 Test Road", null, List.of(
+                    new Dtos.PlaceOrderRequest.LineRequest(soup.getId(), 1),
+                    new Dtos.PlaceOrderRequest.LineRequest(bread.getId(), 2))));
+        }
+
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void customerHistoryIsBoundedInStatements() {
+        List<Dtos.OrderView> views = orderService.forCustomer(customer).stream().map(Dtos.OrderView::of).toList();
+
+        assertThat(views).hasSize(ORDERS).allSatisfy(v -> {
+            assertThat(v.items()).hasSize(2);
+            assertThat(v.timeline()).hasSize(1);
+        });
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void ownerPageIsBoundedInStatements() {
+        var page = orderService.pageForOwner(owner, null, ORDERS);
+        List<Dtos.OrderView> views = page.orders().stream().map(Dtos.OrderView::of).toList();
+
+        assertThat(views).hasSize(ORDERS);
+        // One more for the owner's restaurant lookup.
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS + 1);
+    }
+
+    @Test
+    void singleOrderIsBoundedInStatements() {
+        Long id = orderService.forCustomer(customer).get(0).getId();
+        stats.clear();
+
+        Dtos.OrderView view = Dtos.OrderView.of(orderService.readable(owner, id));
+
+        assertThat(view.customerName()).isEqualTo(customer.getName());
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @Test
+    void placingABigCartReadsItInOneQuery() {
+        List<Dtos.PlaceOrderRequest.LineRequest> lines = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            lines.add(new Dtos.PlaceOrderRequest.LineRequest(data.dish(restaurant, "Dish " + i).getId(), 1));
+        }
+        // The same dish again is merged into its first line.
+        lines.add(new Dtos.PlaceOrderRequest.LineRequest(lines.get(0).menuItemId(), 2));
+        stats.clear();
+
+        Dtos.OrderView view = Dtos.OrderView.of(orderService.place(customer,
+                new Dtos.PlaceOrderRequest(restaurant.getId(), "1 Test Road", null, lines)));
+
+        assertThat(view.items()).hasSize(15);
+        assertThat(view.items().get(0).quantity()).isEqualTo(3);
+        // Restaurant and cart reads, one batched insert per table, and at most
+        // one id allocation per table; none of it grows with the cart.
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2 + 3 + 3);
+    }
+}
@@ -0,0 +1,138 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Order;
+import com.backend.Yummybunch.domain.OrderStatus;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.dto.Dtos;
+import com.backend.Yummybunch.repo.OrderRepository;
+import com.backend.Yummybunch.web.ApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many threads race to move the same order. Exactly one may win each race;
+ * every other must get a 409, and nothing may be half-applied.
+ */
+@SpringBootTest
+class OrderTransitionConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 10;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepository orders;
+    @Autowired private TestData data;
+    @Autowired private TransactionTemplate tx;
+
+    private User customer;
+    private User owner;
+    private Restaurant restaurant;
+    private MenuItem soup;
+
+    @BeforeEach
+    void setUp() {
+        TestData.Kitchen k = data.kitchen("Contended Kitchen");
+        customer = k.customer();
+        owner = k.owner();
+        restaurant = k.restaurant();
+        soup = k.soup();
+    }
+
+    @Test
+    void acceptAndCancelRacingForOneOrderHaveOneWinner() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            Long id = place().getId();
+
+            List<Outcome> outcomes = race(THREADS, i -> i % 2 == 0
+                    ? () -> orderService.advance(owner, id, "RECEIVED", null)
+                    : () -> orderService.cancel(customer, id));
+
+            assertOneWinner(outcomes);
+            tx.executeWithoutResult(status -> {
+                Order order = orders.findById(id).orElseThrow();
+                assertThat(order.getStatus()).isIn(OrderStatus.RECEIVED, OrderStatus.CANCELLED);
+                assertThat(order.getVersion()).isEqualTo(1);
+                // PLACED, then the winner's move, and nothing from the losers.
+                assertThat(order.getEvents()).extracting(e -> e.getStatus())
+                        .containsExactly(OrderStatus.PLACED, order.getStatus());
+            });
+        }
+    }
+
+    @Test
+    void repeatedClicksOnTheSameStepMoveTheOrderOnce() throws Exception {
+        Long id = place().getId();
+        orderService.advance(owner, id, "RECEIVED", null);
+
+        assertOneWinner(race(THREADS, i -> () -> orderService.advance(owner, id, "PREPARING", null)));
+
+        tx.executeWithoutResult(status -> {
+            Order order = orders.findById(id).orElseThrow();
+            assertThat(order.getStatus()).isEqualTo(OrderStatus.PREPARING);
+            assertThat(order.getVersion()).isEqualTo(2);
+            assertThat(order.getEvents()).hasSize(3);
+        });
+    }
+
+    // ---------- helpers ----------
+
+    private record Outcome(boolean won, HttpStatus refusedWith) {}
+
+    private interface Move {
+        Callable<Object> forThread(int i);
+    }
+
+    /** Starts every thread at once and waits for them all. */
+    private static List<Outcome> race(int threads, Move move) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Object> call = move.forThread(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        call.call();
+                        return new Outcome(true, null);
+                    } catch (ApiException e) {
+                        return new Outcome(false, e.getStatus());
+                    }
+                }));
+            }
+            start.countDown();
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> f : futures) outcomes.add(f.get());
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void assertOneWinner(List<Outcome> outcomes) {
+        assertThat(outcomes).filteredOn(Outcome::won).hasSize(1);
+        assertThat(outcomes).filteredOn(o -> !o.won())
+                .allSatisfy(o -> assertThat(o.refusedWith()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    private Order place() {
+        return orderService.place(customer, new Dtos.PlaceOrderRequest(restaurant.getId(), "1 Test Road", null,
+                List.of(new Dtos.PlaceOrderRequest.LineRequest(soup.getId(), 1))));
+    }
+}
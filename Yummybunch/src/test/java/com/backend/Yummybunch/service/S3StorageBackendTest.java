@@ -0,0 +1,193 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.web.UploadController;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** Against a minimal in-process S3 stand-in: path-style PUT, GET, HEAD and DELETE. */
+class S3StorageBackendTest {
+
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    Path dir;
+
+    private FakeS3 bucket;
+    private S3StorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bucket = new FakeS3();
+        backend = backend("");
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+        bucket.stop();
+    }
+
+    @Test
+    void uploadsGoToTheBucketAndLeaveNothingStaged() throws IOException {
+        StorageService storage = StorageServiceTest.storage(dir, backend, event -> {});
+        byte[] png = new byte[300_000];
+        Arrays.fill(png, (byte) 9);
+        System.arraycopy(PNG_MAGIC, 0, png, 0, PNG_MAGIC.length);
+
+        String path = storage.storeImage(new ByteArrayInputStream(png), -1);
+        String name = path.substring("/uploads/".length());
+
+        assertThat(bucket.objects.get(name)).isEqualTo(png);
+        assertThat(bucket.headers.get(name)).containsEntry("content-type", "image/png")
+                .containsEntry("cache-control", "public, max-age=31536000, immutable");
+        try (Stream<Path> staged = Files.list(dir.resolve(".partial"))) {
+            assertThat(staged).isEmpty();
+        }
+        try (InputStream in = storage.open(name)) {
+            assertThat(in.readAllBytes()).isEqualTo(png);
+        }
+
+        storage.deleteByPublicPath(path);
+        assertThat(storage.exists(name)).isFalse();
+        assertThat(bucket.objects).isEmpty();
+    }
+
+    @Test
+    void readsAreRedirectedToTheBucket() throws Exception {
+        bucket.objects.put("ab12.png", new byte[]{1});
+        StorageService storage = StorageServiceTest.storage(dir, backend, event -> {});
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new UploadController(storage, new ImageVariants(storage, 4)))
+                .build();
+
+        String location = mvc.perform(get("/uploads/ab12.png"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Cache-Control", "max-age=1800"))
+                .andReturn().getResponse().getHeader("Location");
+        assertThat(location).startsWith(bucket.url() + "/photos/ab12.png?").contains("X-Amz-Signature=");
+
+        // A variant not made yet: the original, and not for long.
+        mvc.perform(get("/uploads/ab12-thumb.jpg"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().string("Location", containsString("/photos/ab12.png?")));
+    }
+
+    @Test
+    void aPublicBaseUrlNeedsNoSignature() {
+        backend.close();
+        backend = backend("https://cdn.example.com/");
+
+        StorageBackend.DirectRead read = backend.directRead("ab12.png");
+
+        assertThat(read.url()).hasToString("https://cdn.example.com/ab12.png");
+        assertThat(read.cacheFor()).isEqualTo(Duration.ofDays(1));
+    }
+
+    private S3StorageBackend backend(String publicBaseUrl) {
+        return new S3StorageBackend("photos", "us-east-1", bucket.url(), "key", "secret",
+                publicBaseUrl, Duration.ofHours(1));
+    }
+
+    /** Enough of S3 for one bucket. Keys are whatever follows /photos/. */
+    static class FakeS3 {
+
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Map<String, Map<String, String>> headers = new ConcurrentHashMap<>();
+        private final HttpServer server;
+
+        FakeS3() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/photos/", this::handle);
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            String key = exchange.getRequestURI().getPath().substring("/photos/".length());
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+                    objects.put(key, sha != null && sha.startsWith("STREAMING-") ? unchunk(body) : body);
+                    headers.put(key, Map.of(
+                            "content-type", exchange.getRequestHeaders().getFirst("Content-Type"),
+                            "cache-control", exchange.getRequestHeaders().getFirst("Cache-Control")));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                case "GET", "HEAD" -> {
+                    byte[] object = objects.get(key);
+                    if (object == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else if (exchange.getRequestMethod().equals("HEAD")) {
+                        exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, object.length);
+                        exchange.getResponseBody().write(object);
+                    }
+                }
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+            exchange.close();
+        }
+
+        /** aws-chunked: "{hex size};chunk-signature=...\r\n{bytes}\r\n", ending with a zero-size chunk. */
+        private static byte[] unchunk(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int i = 0;
+            while (i < body.length) {
+                int lineEnd = indexOf(body, i);
+                String header = new String(body, i, lineEnd - i, StandardCharsets.US_ASCII);
+                int size = Integer.parseInt(header.split(";")[0], 16);
+                if (size == 0) break;
+                out.write(body, lineEnd + 2, size);
+                i = lineEnd + 2 + size + 2;
+            }
+            return out.toByteArray();
+        }
+
+        private static int indexOf(byte[] body, int from) {
+            for (int i = from; i < body.length - 1; i++) {
+                if (body[i] == '\r' && body[i + 1] == '\n') return i;
+            }
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.UploadBlob;
+import com.backend.Yummybunch.repo.UploadBlobRepository;
+import com.backend.Yummybunch.web.ApiException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StorageServiceTest {
+
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void namesTheFileAfterWhatItIsNotWhatItClaims() throws IOException {
+        StorageService storage = storage(dir, new LocalStorageBackend(dir.toString()), event -> {});
+        byte[] png = image(PNG_MAGIC, 200_000);
+
+        String path = storage.storeImage(new ByteArrayInputStream(png), -1);
+
+        assertThat(path).startsWith("/uploads/").endsWith(".png");
+        Path stored = dir.resolve(path.substring("/uploads/".length()));
+        assertThat(Files.readAllBytes(stored)).isEqualTo(png);
+        assertThat(files(dir.resolve(".partial"))).isEmpty();
+    }
+
+    @Test
+    void rejectsAnythingThatIsNotAnImage() {
+        StorageService storage = storage(dir, new LocalStorageBackend(dir.toString()), event -> {});
+        byte[] script = "<script>alert(1)</script>".getBytes();
+
+        assertStatus(() -> storage.storeImage(new ByteArrayInputStream(script), script.length),
+                HttpStatus.BAD_REQUEST);
+        assertStatus(() -> storage.storeImage(new ByteArrayInputStream(new byte[0]), 0),
+                HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void refusesOversizedBodiesAndLeavesNothingBehind() throws IOException {
+        StorageService storage = storage(dir, new LocalStorageBackend(dir.toString()), event -> {});
+        byte[] huge = image(PNG_MAGIC, 6 * 1024 * 1024);
+
+        // Declared up front: refused before reading.
+        assertStatus(() -> storage.storeImage(new ByteArrayInputStream(huge), huge.length),
+                HttpStatus.PAYLOAD_TOO_LARGE);
+        // Chunked, no length: cut off at the limit.
+        assertStatus(() -> storage.storeImage(new ByteArrayInputStream(huge), -1),
+                HttpStatus.PAYLOAD_TOO_LARGE);
+
+        assertThat(files(dir)).containsExactly(dir.resolve(".partial"));
+        assertThat(files(dir.resolve(".partial"))).isEmpty();
+    }
+
+    @Test
+    void theSameImageTwiceIsStoredOnceAndKeptUntilBothLetGo() throws IOException {
+        List<Object> published = new ArrayList<>();
+        StorageService storage = storage(dir, new LocalStorageBackend(dir.toString()), published::add);
+        byte[] png = image(PNG_MAGIC, 10_000);
+
+        String first = storage.storeImage(new ByteArrayInputStream(png), png.length);
+        String second = storage.storeImage(new ByteArrayInputStream(png), png.length);
+        String other = storage.storeImage(new ByteArrayInputStream(image(PNG_MAGIC, 10_001)), -1);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(other).isNotEqualTo(first);
+        assertThat(published).hasSize(2); // variants are made once per distinct image
+        Path stored = dir.resolve(first.substring("/uploads/".length()));
+
+        storage.deleteByPublicPath(first);
+        assertThat(stored).exists();
+        storage.deleteByPublicPath(second);
+        assertThat(stored).doesNotExist();
+    }
+
+    @Test
+    void uploadsFromBeforeCountingAreDeletedOutright() throws IOException {
+        StorageService storage = storage(dir, new LocalStorageBackend(dir.toString()), event -> {});
+        Path legacy = Files.write(dir.resolve("0b5c2d4e-legacy.jpg"), new byte[]{1});
+
+        storage.deleteByPublicPath("/uploads/0b5c2d4e-legacy.jpg");
+
+        assertThat(legacy).doesNotExist();
+    }
+
+    /** A service over the given backend, with reference counts kept in a map. */
+    static StorageService storage(Path dir, StorageBackend backend, ApplicationEventPublisher events) {
+        return new StorageService(dir.toString(), backend, events, countingBlobs(),
+                mock(PlatformTransactionManager.class));
+    }
+
+    /** The repository's counting, over a map. Locking is moot with one thread. */
+    private static UploadBlobRepository countingBlobs() {
+        Map<String, UploadBlob> rows = new HashMap<>();
+        UploadBlobRepository blobs = mock(UploadBlobRepository.class);
+        when(blobs.lockByName(anyString())).thenAnswer(call -> Optional.ofNullable(rows.get(call.getArgument(0))));
+        when(blobs.saveAndFlush(any())).thenAnswer(call -> {
+            UploadBlob blob = call.getArgument(0);
+            rows.put(blob.getName(), blob);
+            return blob;
+        });
+        doAnswer(call -> rows.remove(((UploadBlob) call.getArgument(0)).getName())).when(blobs).delete(any());
+        return blobs;
+    }
+
+    private static byte[] image(byte[] magic, int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 7);
+        System.arraycopy(magic, 0, bytes, 0, magic.length);
+        return bytes;
+    }
+
+    private static void assertStatus(Runnable upload, HttpStatus status) {
+        assertThatThrownBy(upload::run)
+                .isInstanceOfSatisfying(ApiException.class, e -> assertThat(e.getStatus()).isEqualTo(status));
+    }
+
+    private static List<Path> files(Path dir) throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.toList();
+        }
+    }
+}
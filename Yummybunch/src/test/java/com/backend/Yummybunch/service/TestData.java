@@ -0,0 +1,67 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.MenuItem;
+import com.backend.Yummybunch.domain.Restaurant;
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.repo.MenuItemRepository;
+import com.backend.Yummybunch.repo.RestaurantRepository;
+import com.backend.Yummybunch.repo.UserRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Saved fixtures for the Spring tests in this package. Picked up by component
+ * scanning, so a test only needs to autowire it. Every call makes fresh rows
+ * with unique emails, since the context (and its database) is shared.
+ */
+@Component
+class TestData {
+
+    /** A customer, an owner, their restaurant and one dish on its menu. */
+    record Kitchen(User customer, User owner, Restaurant restaurant, MenuItem soup) {}
+
+    private final UserRepository users;
+    private final RestaurantRepository restaurants;
+    private final MenuItemRepository menuItems;
+
+    TestData(UserRepository users, RestaurantRepository restaurants, MenuItemRepository menuItems) {
+        this.users = users;
+        this.restaurants = restaurants;
+        this.menuItems = menuItems;
+    }
+
+    Kitchen kitchen(String name) {
+        User customer = user(User.Role.CUSTOMER);
+        User owner = user(User.Role.RESTAURANT);
+        Restaurant restaurant = restaurant(owner, name);
+        return new Kitchen(customer, owner, restaurant, dish(restaurant, "Soup"));
+    }
+
+    User user(User.Role role) {
+        User u = new User();
+        u.setEmail(UUID.randomUUID() + "@example.com");
+        u.setPasswordHash("x");
+        u.setName(role.name().toLowerCase());
+        u.setRole(role);
+        u.setEmailVerified(true);
+        return users.save(u);
+    }
+
+    Restaurant restaurant(User owner, String name) {
+        Restaurant r = new Restaurant();
+        r.setOwner(owner);
+        r.setName(name);
+        return restaurants.save(r);
+    }
+
+    /** A dish at 4.50, available. */
+    MenuItem dish(Restaurant restaurant, String name) {
+        MenuItem m = new MenuItem();
+        m.setRestaurant(restaurant);
+        m.setName(name);
+        m.setPrice(new BigDecimal("4.50"));
+        return menuItems.save(m);
+    }
+}
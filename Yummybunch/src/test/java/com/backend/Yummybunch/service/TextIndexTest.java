@@ -0,0 +1,83 @@
+package com.backend.Yummybunch.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextIndexTest {
+
+    private final TextIndex index = new TextIndex();
+
+    @BeforeEach
+    void fill() {
+        index.put(1, "Luigi's", "Italian", List.of(
+                new TextIndex.Field("Luigi's", 3f),
+                new TextIndex.Field("Margherita pizza", 1.5f)));
+        index.put(2, "Pizza Palace", "Italian", List.of(
+                new TextIndex.Field("Pizza Palace", 3f)));
+        index.put(3, "Café Saigon", "Vietnamese", List.of(
+                new TextIndex.Field("Café Saigon", 3f),
+                new TextIndex.Field("Beef pho", 1.5f)));
+    }
+
+    @Test
+    void ranksNameMatchesAboveMenuMatches() {
+        assertThat(ids("pizza")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void matchesPrefixesWhileTyping() {
+        assertThat(ids("marg")).containsExactly(1L);
+        assertThat(ids("sai")).containsExactly(3L);
+    }
+
+    @Test
+    void toleratesOneTypo() {
+        assertThat(ids("piza")).containsExactly(2L, 1L);   // deletion
+        assertThat(ids("pizzza")).containsExactly(2L, 1L); // insertion
+        assertThat(ids("pizaz")).containsExactly(2L, 1L);  // swap
+        assertThat(ids("saigin")).containsExactly(3L);     // substitution
+    }
+
+    @Test
+    void aShortPrefixReachesEveryTermThatStartsWithIt() {
+        // "pa" sorts before all of these, so a cap on expansion would drop the last ones.
+        for (int i = 0; i < 100; i++) {
+            index.put(100 + i, "Pasta " + i, "Italian", List.of(
+                    new TextIndex.Field(String.format("Pasta%03d", i), 3f)));
+        }
+
+        assertThat(ids("pa")).contains(2L, 100L, 199L).hasSize(101);
+        assertThat(ids("pasta099")).first().isEqualTo(199L); // exact first, then one-typo neighbours
+    }
+
+    @Test
+    void requiresEveryWordAndIgnoresAccents() {
+        assertThat(ids("cafe pho")).containsExactly(3L);
+        assertThat(ids("cafe pizza")).isEmpty();
+    }
+
+    @Test
+    void filtersByFacet() {
+        assertThat(index.search("pizza", "vietnamese")).isEmpty();
+        assertThat(index.search("", "ITALIAN")).extracting(TextIndex.Hit::id).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void replacesAndRemovesDocuments() {
+        index.put(2, "Burger Barn", "American", List.of(new TextIndex.Field("Burger Barn", 3f)));
+        assertThat(ids("pizza")).containsExactly(1L);
+        assertThat(ids("burger")).containsExactly(2L);
+
+        index.remove(1);
+        assertThat(ids("pizza")).isEmpty();
+        assertThat(ids("piza")).isEmpty();
+    }
+
+    private List<Long> ids(String q) {
+        return index.search(q, null).stream().map(TextIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.repo.UploadBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uploads and deletes of one image racing each other, as they would from
+ * several instances sharing a bucket. The database row lock is all that keeps
+ * the count and the stored object in step.
+ */
+@SpringBootTest
+class UploadReferenceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired private StorageService storage;
+    @Autowired private UploadBlobRepository blobs;
+
+    @Test
+    void firstCopiesStoredAtOnceAreCountedOnce() throws Exception {
+        byte[] png = png();
+
+        List<String> paths = race(i -> () -> storage.storeImage(new ByteArrayInputStream(png), png.length));
+
+        String name = paths.get(0).substring("/uploads/".length());
+        assertThat(paths).containsOnly(paths.get(0));
+        assertThat(blobs.findById(name).orElseThrow().getRefCount()).isEqualTo(THREADS);
+        assertThat(storage.exists(name)).isTrue();
+    }
+
+    @Test
+    void anUploadRacingTheLastDeleteKeepsItsImage() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            byte[] png = png();
+            String path = storage.storeImage(new ByteArrayInputStream(png), png.length);
+            String name = path.substring("/uploads/".length());
+
+            // One thread lets go of the only reference while the rest store the same bytes again.
+            race(i -> () -> {
+                if (i == 0) {
+                    storage.deleteByPublicPath(path);
+                    return path;
+                }
+                return storage.storeImage(new ByteArrayInputStream(png), png.length);
+            });
+
+            assertThat(blobs.findById(name).orElseThrow().getRefCount()).isEqualTo(THREADS - 1);
+            assertThat(storage.exists(name)).isTrue();
+        }
+    }
+
+    // ---------- helpers ----------
+
+    private interface Step {
+        Callable<String> forThread(int i);
+    }
+
+    private static List<String> race(Step step) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Callable<String> call = step.forThread(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : futures) results.add(f.get());
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** A small image no other test has stored. */
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, ThreadLocalRandom.current().nextInt());
+        image.setRGB(3, 3, ThreadLocalRandom.current().nextInt());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
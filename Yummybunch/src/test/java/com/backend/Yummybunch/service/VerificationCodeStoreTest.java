@@ -0,0 +1,114 @@
+package com.backend.Yummybunch.service;
+
+import com.backend.Yummybunch.domain.User;
+import com.backend.Yummybunch.domain.VerificationCode;
+import com.backend.Yummybunch.repo.VerificationCodeRepository;
+import com.backend.Yummybunch.web.ApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.mail.username=noreply@yummybunch.test",
+        "mail.outbox.poll-ms=600000",
+        // Run by hand below.
+        "auth.codes.flush-ms=600000",
+        "auth.codes.sweep-ms=600000"
+})
+class VerificationCodeStoreTest {
+
+    @Autowired private AuthService auth;
+    @Autowired private VerificationCodeStore store;
+    @Autowired private VerificationCodeRepository codes;
+    @Autowired private TransactionTemplate tx;
+
+    @Test
+    void wrongGuessesAreCountedInMemoryAndWrittenLater() {
+        String email = register();
+
+        assertThatThrownBy(() -> auth.verify(email, wrong(email))).hasMessageContaining("4 attempt(s) left");
+        assertThatThrownBy(() -> auth.verify(email, wrong(email))).hasMessageContaining("3 attempt(s) left");
+        assertThat(row(email).getAttempts()).isZero();
+
+        store.saveAttempts();
+        assertThat(row(email).getAttempts()).isEqualTo(2);
+
+        // A fresh store, as after a restart, picks up where the table left off.
+        VerificationCodeStore restarted = new VerificationCodeStore(codes, event -> {});
+        assertThat(restarted.latest(email).attempts()).isEqualTo(2);
+    }
+
+    @Test
+    void theLimitHoldsEvenForTheRightCode() {
+        String email = register();
+        for (int i = 0; i < VerificationCode.MAX_ATTEMPTS; i++) {
+            assertThatThrownBy(() -> auth.verify(email, wrong(email))).isInstanceOf(ApiException.class);
+        }
+        // The lock-out is written at once, not left for the next flush.
+        assertThat(row(email).getAttempts()).isEqualTo(VerificationCode.MAX_ATTEMPTS);
+
+        assertThatThrownBy(() -> auth.verify(email, row(email).getCode()))
+                .hasMessageContaining("no longer valid");
+    }
+
+    @Test
+    void aCodeIsSpentOnceAndSweptAfterwards() {
+        String email = register();
+        String code = row(email).getCode();
+
+        assertThat(auth.verify(email, code).user().isEmailVerified()).isTrue();
+        assertThat(row(email).isConsumed()).isTrue();
+        assertThat(store.consume(store.latest(email))).isFalse();
+
+        store.sweep();
+        assertThat(codes.findByEmailIgnoreCase(email)).isEmpty();
+    }
+
+    @Test
+    void aReplacedCodeHasItsGuessesWritten() throws InterruptedException {
+        String email = register();
+        assertThatThrownBy(() -> auth.verify(email, wrong(email))).isInstanceOf(ApiException.class);
+        VerificationCode first = row(email);
+
+        tx.executeWithoutResult(status -> store.issue(email, "123456"));
+
+        for (int i = 0; i < 100 && codes.findById(first.getId()).orElseThrow().getAttempts() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(codes.findById(first.getId()).orElseThrow().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void aCodeSpentInARolledBackTransactionStaysUsable() {
+        String email = register();
+        VerificationCodeStore.Code code = store.latest(email);
+
+        tx.executeWithoutResult(status -> {
+            assertThat(store.consume(code)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(code.isUsable()).isTrue();
+        assertThat(row(email).isConsumed()).isFalse();
+    }
+
+    private String register() {
+        String email = UUID.randomUUID() + "@example.com";
+        auth.register(email, "password123", "Dee", null, User.Role.CUSTOMER, null, null, null);
+        return email;
+    }
+
+    private VerificationCode row(String email) {
+        return codes.findFirstByEmailIgnoreCaseOrderByCreatedAtDesc(email).orElseThrow();
+    }
+
+    private String wrong(String email) {
+        return row(email).getCode().equals("000000") ? "111111" : "000000";
+    }
+}
@@ -0,0 +1,123 @@
+package com.backend.Yummybunch.web;
+
+import com.backend.Yummybunch.repo.UploadBlobRepository;
+import com.backend.Yummybunch.service.ImageVariants;
+import com.backend.Yummybunch.service.LocalStorageBackend;
+import com.backend.Yummybunch.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class UploadControllerTest {
+
+    private static final String HASH = "85e052d1ca8c93b64d02960b4e08d851";
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mvc;
+    private byte[] image;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        StorageService storage = new StorageService(dir.toString(), new LocalStorageBackend(dir.toString()),
+                event -> {}, mock(UploadBlobRepository.class), mock(PlatformTransactionManager.class));
+        mvc = MockMvcBuilders.standaloneSetup(new UploadController(storage, new ImageVariants(storage, 4)))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        image = new byte[100_000];
+        Arrays.fill(image, (byte) 3);
+        Files.write(dir.resolve(HASH + ".jpg"), image);
+    }
+
+    @Test
+    void servesTheWholeFileWithItsHashAsETagAndCachesItForGood() throws Exception {
+        mvc.perform(get("/uploads/" + HASH + ".jpg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + HASH + "\""))
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(image));
+
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("If-None-Match", "\"" + HASH + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void answersSingleRangesAndRefusesOnesPastTheEnd() throws Exception {
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("Range", "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 10-19/100000"))
+                .andExpect(content().bytes(Arrays.copyOfRange(image, 10, 20)));
+
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("Range", "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 99995-99999/100000"));
+
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("Range", "bytes=100000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */100000"));
+
+        // The file changed since the client started: send all of it.
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("Range", "bytes=10-19").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    void prefersAPrecompressedSiblingWhenTheClientTakesIt() throws Exception {
+        byte[] gzipped = {1, 2, 3};
+        Files.write(dir.resolve(HASH + ".jpg.gz"), gzipped);
+
+        mvc.perform(get("/uploads/" + HASH + ".jpg").header("Accept-Encoding", "br;q=0, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("ETag", "\"" + HASH + "-gzip\""))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(gzipped));
+
+        mvc.perform(get("/uploads/" + HASH + ".jpg"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    void handsLargeFilesToTheConnectorsSendfile() throws Exception {
+        var request = mvc.perform(get("/uploads/" + HASH + ".jpg").header("Range", "bytes=100-")
+                        .requestAttr(UploadController.SENDFILE_SUPPORTED, true))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue("Content-Length", 99_900))
+                .andReturn().getRequest();
+
+        assertThat(request.getAttribute(UploadController.SENDFILE_FILENAME))
+                .isEqualTo(dir.resolve(HASH + ".jpg").toAbsolutePath().toString());
+        assertThat(request.getAttribute(UploadController.SENDFILE_START)).isEqualTo(100L);
+        assertThat(request.getAttribute(UploadController.SENDFILE_END)).isEqualTo(100_000L);
+    }
+
+    @Test
+    void aMissingVariantGetsTheOriginalButOnlyForNow() throws Exception {
+        mvc.perform(get("/uploads/" + HASH + "-thumb.jpg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(image));
+
+        mvc.perform(get("/uploads/.partial")).andExpect(status().isNotFound());
+        mvc.perform(get("/uploads/nothing.jpg")).andExpect(status().isNotFound());
+    }
+}